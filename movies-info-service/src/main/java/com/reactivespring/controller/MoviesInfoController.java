@@ -1,16 +1,26 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.domain.BulkItemResult;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.pagination.Pagination;
+import com.reactivespring.repository.MovieInfoProjection;
 import com.reactivespring.service.MoviesInfoService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/v1")
@@ -23,8 +33,14 @@ public class MoviesInfoController {
 
    // private Sinks.Many<MovieInfo> movieInfoSinks = Sinks.many().replay().all(); //all events will be streamed for every subscriber
 
-    public MoviesInfoController(MoviesInfoService moviesInfoService) {
+    private Pagination pagination;
+
+    private Validator validator;
+
+    public MoviesInfoController(MoviesInfoService moviesInfoService, Pagination pagination, Validator validator) {
         this.moviesInfoService = moviesInfoService;
+        this.pagination = pagination;
+        this.validator = validator;
     }
 
     @PostMapping("/movieinfos")
@@ -37,23 +53,58 @@ public class MoviesInfoController {
         //subscriber to this movie info
     }
 
+    /**
+     * Loads movie infos from an NDJSON body, read as it arrives, and answers one NDJSON result per
+     * movie info as they are written. Invalid or duplicate movie infos are reported, not fatal.
+     * Bulk loads are not published on the movie info stream.
+     */
+    @PostMapping(value = "/movieinfos/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkItemResult> addMovieInfos(@RequestBody Flux<MovieInfo> movieInfos) {
+        return moviesInfoService.addMovieInfos(movieInfos);
+    }
+
     @GetMapping(value = "/movieinfos/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
     public Flux<MovieInfo> getMoviesInfoAsStream() {
         return movieInfoSinks.asFlux().log();
     }
 
+    /**
+     * Lists movie infos a page at a time: the {@link Pagination#NEXT_PAGE_HEADER} response header
+     * holds the token to pass as {@code next} for the following page, and is absent on the last one.
+     * {@code fields} restricts the movie infos to the listed properties.
+     */
     @GetMapping("/movieinfos")
-    public Flux<MovieInfo> getAllMoviesInfo(@RequestParam(value = "year", required = false) Integer year) {
-        if(year !=null) {
-            return moviesInfoService.getMovieInfoByYear(year);
+    public Mono<ResponseEntity<Flux<MovieInfo>>> getAllMoviesInfo(@RequestParam(value = "year", required = false) Integer year,
+                                                                  @RequestParam(value = "ids", required = false) List<String> ids,
+                                                                  @RequestParam(value = "limit", required = false) Integer limit,
+                                                                  @RequestParam(value = "next", required = false) String next,
+                                                                  @RequestParam(value = "unpaged", defaultValue = "false") boolean unpaged,
+                                                                  @RequestParam(value = "fields", required = false) List<String> fields) {
+        var projection = projection(fields);
+        if(ids != null) {
+            return Mono.just(ResponseEntity.ok().body(moviesInfoService.getMovieInfosByIds(ids, projection)));
+        }
+        if(unpaged) {
+            pagination.checkUnpaged();
+            return Mono.just(ResponseEntity.ok().body(moviesInfoService.getAllMoviesInfo(year, projection)));
         }
-        return moviesInfoService.getAllMoviesInfo();
+        var after = pagination.cursor(next, Collections.singletonMap("year", year));
+        return moviesInfoService.getMovieInfoPage(year, after, pagination.limit(limit), projection)
+                .map(page -> {
+                    var response = ResponseEntity.ok();
+                    if (page.getNext() != null) {
+                        response.header(Pagination.NEXT_PAGE_HEADER, page.getNext());
+                    }
+                    return response.body(Flux.fromIterable(page.getContent()));
+                });
     }
 
     @GetMapping("/movieinfos/{id}")
-    public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(@PathVariable String id) {
-        return moviesInfoService.getMovieInfoById(id)
-                .map(ResponseEntity.ok()::body)
+    public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(@PathVariable String id,
+                                                            @RequestParam(value = "fields", required = false) List<String> fields) {
+        return moviesInfoService.getMovieInfoById(id, projection(fields))
+                .map(this::ok)
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
                 .log();
     }
@@ -61,14 +112,73 @@ public class MoviesInfoController {
     @PutMapping("/movieinfos/{id}")
     public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@RequestBody MovieInfo movieInfo, @PathVariable String id) {
         return moviesInfoService.updateMovieInfo(movieInfo, id)
-                .map(ResponseEntity.ok()::body)
+                .doOnNext(movieInfo1 -> movieInfoSinks.tryEmitNext(movieInfo1))
+                .map(this::ok)
+                .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
+    }
+
+    /**
+     * Changes only the properties present in the body. With If-Match, the change applies only if
+     * the movie info is still at that ETag, and is rejected with 412 otherwise.
+     */
+    @PatchMapping("/movieinfos/{id}")
+    public Mono<ResponseEntity<MovieInfo>> patchMovieInfo(@RequestBody MovieInfo changes, @PathVariable String id,
+                                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        validateChanges(changes);
+        return moviesInfoService.patchMovieInfo(id, changes, expectedVersion(ifMatch))
+                .doOnNext(movieInfo1 -> movieInfoSinks.tryEmitNext(movieInfo1))
+                .map(this::ok)
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
     }
 
     @DeleteMapping("/movieinfos/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> deleteMovieInfo(@PathVariable String id) {
-        return moviesInfoService.deleteMovieInfo(id);
+        return moviesInfoService.deleteMovieInfo(id)
+                //subscribers holding a copy of the movie info learn that it is gone
+                .doOnSuccess(deleted -> movieInfoSinks.tryEmitNext(MovieInfo.deleted(id)));
+    }
+
+    private MovieInfoProjection projection(List<String> fields) {
+        try {
+            return MovieInfoProjection.of(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ServerWebInputException(e.getMessage());
+        }
     }
 
+    private ResponseEntity<MovieInfo> ok(MovieInfo movieInfo) {
+        var response = ResponseEntity.ok();
+        //absent when a projection left it out
+        if (movieInfo.getVersion() != null) {
+            response.eTag(String.valueOf(movieInfo.getVersion()));
+        }
+        return response.body(movieInfo);
+    }
+
+    private void validateChanges(MovieInfo changes) {
+        var properties = MoviesInfoService.editableProperties(changes, false).keySet();
+        if (properties.isEmpty()) {
+            throw new ServerWebInputException("no property of the movie info to change");
+        }
+        var errors = properties.stream()
+                .flatMap(property -> validator.validateProperty(changes, property).stream())
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(","));
+        if (!errors.isEmpty()) {
+            throw new ServerWebInputException(errors);
+        }
+    }
+
+    private Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        try {
+            return Long.valueOf(ifMatch.trim().replaceFirst("^W/", "").replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new ServerWebInputException("If-Match must be an ETag of the movie info");
+        }
+    }
 }
@@ -0,0 +1,18 @@
+package com.reactivespring.deadline;
+
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.util.context.ContextView;
+
+public class DeadlineQueries {
+
+    /**
+     * Bounds the query by the remaining budget of the request, so the database stops working
+     * on it too once the caller has given up.
+     */
+    public static Query withinDeadline(Query query, ContextView contextView) {
+        Deadline.from(contextView)
+                //maxTimeMS of 0 would mean no limit at all
+                .ifPresent(deadline -> query.maxTimeMsec(Math.max(1, deadline.remaining().toMillis())));
+        return query;
+    }
+}
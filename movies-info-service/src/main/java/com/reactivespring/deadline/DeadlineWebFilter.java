@@ -0,0 +1,42 @@
+package com.reactivespring.deadline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Applies the caller's {@link Deadline#TIMEOUT_HEADER}: the request is abandoned, and its
+ * database queries cancelled, once the caller has stopped waiting for it.
+ */
+@Component
+@Slf4j
+public class DeadlineWebFilter implements WebFilter {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var header = exchange.getRequest().getHeaders().getFirst(Deadline.TIMEOUT_HEADER);
+        if (header == null) {
+            return chain.filter(exchange);
+        }
+        Duration timeout;
+        try {
+            timeout = Duration.ofMillis(Long.parseLong(header.trim()));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring invalid {} header : {}", Deadline.TIMEOUT_HEADER, header);
+            return chain.filter(exchange);
+        }
+        var deadline = Deadline.after(timeout);
+        return chain.filter(exchange)
+                .timeout(timeout)
+                .onErrorMap(ex -> deadline.isExpired(),
+                        ex -> new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Deadline exceeded", ex))
+                .contextWrite(deadline::storeIn);
+    }
+}
@@ -0,0 +1,31 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one movie info of a bulk upload.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkItemResult {
+
+    public enum Status {
+        CREATED,
+        //failed validation, not written
+        INVALID,
+        //a movie info with the same id exists
+        DUPLICATE,
+        FAILED
+    }
+
+    //position of the movie info in the upload, from 0
+    private long index;
+    private String movieInfoId;
+    private Status status;
+    private String error;
+}
@@ -1,9 +1,12 @@
 package com.reactivespring.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.NotBlank;
@@ -15,6 +18,7 @@ import java.util.List;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Document
 public class MovieInfo {
 
@@ -29,4 +33,27 @@ public class MovieInfo {
     private Integer year;
     private List<@NotBlank(message = "movieInfo.cast must be present") String> cast;
     private LocalDate release_date;
+
+    //incremented by every write, and the ETag of the movie info
+    @Version
+    private Long version;
+
+    //set only on the stream event of a deleted movie info, which carries nothing but its id
+    @Transient
+    private Boolean deleted;
+
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate release_date) {
+        this(movieInfoId, name, year, cast, release_date, null);
+    }
+
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate release_date, Long version) {
+        this(movieInfoId, name, year, cast, release_date, version, null);
+    }
+
+    public static MovieInfo deleted(String movieInfoId) {
+        var tombstone = new MovieInfo();
+        tombstone.setMovieInfoId(movieInfoId);
+        tombstone.setDeleted(true);
+        return tombstone;
+    }
 }
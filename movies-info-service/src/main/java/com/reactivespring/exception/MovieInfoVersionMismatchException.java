@@ -0,0 +1,8 @@
+package com.reactivespring.exception;
+
+public class MovieInfoVersionMismatchException extends RuntimeException {
+
+    public MovieInfoVersionMismatchException(String message) {
+        super(message);
+    }
+}
@@ -1,7 +1,11 @@
 package com.reactivespring.exceptionhandler;
 
+import com.reactivespring.exception.MovieInfoVersionMismatchException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -26,4 +30,19 @@ public class GlobalErrorHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
 
     }
+
+    @ExceptionHandler(MovieInfoVersionMismatchException.class)
+    public ResponseEntity<String> handleVersionMismatch(MovieInfoVersionMismatchException ex) {
+        log.info("Update rejected : {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(ex.getMessage());
+    }
+
+    @ExceptionHandler({DuplicateKeyException.class, OptimisticLockingFailureException.class})
+    public ResponseEntity<String> handleConflict(DataAccessException ex) {
+        log.info("Write rejected : {}", ex.getMessage());
+        var message = ex instanceof DuplicateKeyException
+                ? "Movie info already exists"
+                : "Movie info was changed concurrently";
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(message);
+    }
 }
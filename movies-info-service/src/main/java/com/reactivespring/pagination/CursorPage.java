@@ -0,0 +1,45 @@
+package com.reactivespring.pagination;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of items, and the token of the next page if there is one.
+ */
+public class CursorPage<T> {
+
+    private final List<T> content;
+
+    private final String next;
+
+    private CursorPage(List<T> content, String next) {
+        this.content = content;
+        this.next = next;
+    }
+
+    /**
+     * Builds the page from {@code items}, read with a limit of {@code limit + 1}: the extra item
+     * only tells whether there is a next page, so the last page does not need a request of its own.
+     */
+    public static <T> Mono<CursorPage<T>> of(Flux<T> items, int limit, Function<T, PageCursor> cursorOf) {
+        return items.collectList()
+                .map(list -> {
+                    if (list.size() <= limit) {
+                        return new CursorPage<>(list, null);
+                    }
+                    var content = list.subList(0, limit);
+                    return new CursorPage<>(content, cursorOf.apply(content.get(limit - 1)).encode());
+                });
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public String getNext() {
+        return next;
+    }
+}
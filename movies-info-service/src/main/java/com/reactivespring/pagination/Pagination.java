@@ -0,0 +1,66 @@
+package com.reactivespring.pagination;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.util.Map;
+
+/**
+ * Page size limits of the listing endpoints. Listing a whole collection in one response is
+ * refused unless {@code pagination.unpagedEnabled} is set, as it is for admin use only.
+ */
+@Component
+public class Pagination {
+
+    public static final String NEXT_PAGE_HEADER = "X-Next-Page";
+
+    @Value("${pagination.defaultLimit:100}")
+    private int defaultLimit;
+
+    @Value("${pagination.maxLimit:1000}")
+    private int maxLimit;
+
+    @Value("${pagination.unpagedEnabled:false}")
+    private boolean unpagedEnabled;
+
+    public int limit(Integer requested) {
+        if (requested == null) {
+            return defaultLimit;
+        }
+        if (requested < 1) {
+            throw new ServerWebInputException("limit must be a positive value");
+        }
+        return Math.min(requested, maxLimit);
+    }
+
+    public PageCursor cursor(String next) {
+        return cursor(next, Map.of());
+    }
+
+    /**
+     * The cursor of {@code next}, which must come from a listing read with the same
+     * {@code filter} values.
+     */
+    public PageCursor cursor(String next, Map<String, ?> filter) {
+        if (next == null) {
+            return null;
+        }
+        PageCursor cursor;
+        try {
+            cursor = PageCursor.decode(next);
+        } catch (IllegalArgumentException e) {
+            throw new ServerWebInputException("next is not a valid page token");
+        }
+        if (!cursor.readWith(filter)) {
+            throw new ServerWebInputException("next belongs to another listing");
+        }
+        return cursor;
+    }
+
+    public void checkUnpaged() {
+        if (!unpagedEnabled) {
+            throw new ServerWebInputException("unpaged listing is disabled, page through it with limit and next");
+        }
+    }
+}
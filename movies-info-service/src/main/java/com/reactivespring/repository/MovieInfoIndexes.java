@@ -0,0 +1,56 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.MovieInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+
+/**
+ * Indexes backing the lookups of {@link MovieInfoRepository}, created before the service takes
+ * traffic. Creating an index that already exists with the same options is a no-op.
+ */
+@Component
+@Slf4j
+public class MovieInfoIndexes {
+
+    /**
+     * Case-insensitive comparison; a query only uses the name index when it asks for this collation.
+     */
+    public static final String NAME_COLLATION = "{ 'locale' : 'en', 'strength' : 2 }";
+
+    /**
+     * The single-field year index of earlier versions: year_id serves every query on year alone
+     * as well, so keeping it would only add to the cost of every write.
+     */
+    static final String SUPERSEDED_YEAR_INDEX = "year";
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public MovieInfoIndexes(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        var indexOps = reactiveMongoTemplate.indexOps(MovieInfo.class);
+        Flux.concat(
+                        indexOps.ensureIndex(new Index("year", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                                .named("year_id"))
+                                .doOnNext(name -> log.info("Ensured index {} on movieInfo", name)),
+                        indexOps.ensureIndex(new Index("name", Sort.Direction.ASC).named("name_ci")
+                                .collation(Collation.parse(NAME_COLLATION)))
+                                .doOnNext(name -> log.info("Ensured index {} on movieInfo", name)),
+                        indexOps.getIndexInfo()
+                                .filter(index -> index.getName().equals(SUPERSEDED_YEAR_INDEX))
+                                .concatMap(index -> indexOps.dropIndex(index.getName()).thenReturn(index.getName()))
+                                .doOnNext(name -> log.info("Dropped index {} on movieInfo", name)))
+                .blockLast(Duration.ofSeconds(30));
+    }
+}
@@ -0,0 +1,50 @@
+package com.reactivespring.repository;
+
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The movie info fields a caller asked for. Applied as a Mongo projection, so the other fields are
+ * neither read nor decoded, and left null they are not serialized either. The id is always
+ * included, as it identifies the movie info and positions the next page.
+ */
+public class MovieInfoProjection {
+
+    public static final MovieInfoProjection ALL = new MovieInfoProjection(Set.of());
+
+    private static final Set<String> SELECTABLE_FIELDS = Set.of("movieInfoId", "name", "year", "cast", "release_date");
+
+    private final Set<String> fields;
+
+    private MovieInfoProjection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * @param fields property names of {@link com.reactivespring.domain.MovieInfo}, all of them if null or empty
+     * @throws IllegalArgumentException for a field that is not a property of a movie info
+     */
+    public static MovieInfoProjection of(List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return ALL;
+        }
+        var selected = new LinkedHashSet<String>();
+        selected.add("movieInfoId");
+        for (var field : fields) {
+            var trimmed = field.trim();
+            if (!SELECTABLE_FIELDS.contains(trimmed)) {
+                throw new IllegalArgumentException("Unknown field " + trimmed + ", fields can be " + SELECTABLE_FIELDS);
+            }
+            selected.add(trimmed);
+        }
+        return new MovieInfoProjection(selected);
+    }
+
+    public Query applyTo(Query query) {
+        fields.forEach(field -> query.fields().include(field));
+        return query;
+    }
+}
@@ -0,0 +1,56 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.MovieInfo;
+import com.mongodb.bulk.BulkWriteError;
+import com.reactivespring.pagination.PageCursor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookups on the request path, bounded by the deadline of the request.
+ */
+public interface MovieInfoRepositoryCustom {
+
+    Mono<MovieInfo> findById(String id);
+
+    Mono<MovieInfo> findById(String id, MovieInfoProjection projection);
+
+    Flux<MovieInfo> findAllById(Iterable<String> ids);
+
+    Flux<MovieInfo> findAllById(Iterable<String> ids, MovieInfoProjection projection);
+
+    Flux<MovieInfo> findByYear(Integer year);
+
+    /**
+     * Case-insensitive, which is also what lets it use the name index.
+     */
+    Mono<MovieInfo> findByName(String name);
+
+    /**
+     * Every movie info, of the given year if not null. Unbounded, for admin use.
+     */
+    Flux<MovieInfo> findAll(Integer year, MovieInfoProjection projection);
+
+    /**
+     * Up to {@code limit} movie infos after {@code after} (from the first one if null) in id
+     * order, of the given year if not null.
+     */
+    Flux<MovieInfo> findPage(Integer year, PageCursor after, int limit, MovieInfoProjection projection);
+
+    /**
+     * Writes the movie infos with a single unordered insertMany, so one failing document does not
+     * stop the others. Movie infos without an id are given one first. Emits the errors of the
+     * documents that were not inserted, empty if all were.
+     */
+    Mono<List<BulkWriteError>> insertUnordered(List<MovieInfo> movieInfos);
+
+    /**
+     * Sets {@code properties} and increments the version in one atomic findAndModify, and emits the
+     * updated movie info. With {@code expectedVersion}, only a movie info still at that version
+     * matches. Empty if no movie info matched.
+     */
+    Mono<MovieInfo> update(String id, Map<String, Object> properties, Long expectedVersion);
+}
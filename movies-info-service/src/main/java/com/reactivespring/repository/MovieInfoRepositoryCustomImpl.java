@@ -0,0 +1,126 @@
+package com.reactivespring.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.pagination.PageCursor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.reactivespring.deadline.DeadlineQueries.withinDeadline;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class MovieInfoRepositoryCustomImpl implements MovieInfoRepositoryCustom {
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public MovieInfoRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Mono<MovieInfo> findById(String id) {
+        return findById(id, MovieInfoProjection.ALL);
+    }
+
+    @Override
+    public Mono<MovieInfo> findById(String id, MovieInfoProjection projection) {
+        var query = projection.applyTo(query(where("movieInfoId").is(id)));
+        return Mono.deferContextual(contextView -> reactiveMongoTemplate.findOne(
+                withinDeadline(query, contextView), MovieInfo.class));
+    }
+
+    @Override
+    public Flux<MovieInfo> findAllById(Iterable<String> ids) {
+        return findAllById(ids, MovieInfoProjection.ALL);
+    }
+
+    @Override
+    public Flux<MovieInfo> findAllById(Iterable<String> ids, MovieInfoProjection projection) {
+        var query = projection.applyTo(query(where("movieInfoId").in(ids)));
+        return Flux.deferContextual(contextView -> reactiveMongoTemplate.find(
+                withinDeadline(query, contextView), MovieInfo.class));
+    }
+
+    @Override
+    public Flux<MovieInfo> findByYear(Integer year) {
+        var query = query(where("year").is(year));
+        return Flux.deferContextual(contextView -> reactiveMongoTemplate.find(
+                withinDeadline(query, contextView), MovieInfo.class));
+    }
+
+    @Override
+    public Mono<MovieInfo> findByName(String name) {
+        var query = query(where("name").is(name)).collation(Collation.parse(MovieInfoIndexes.NAME_COLLATION));
+        return Mono.deferContextual(contextView -> reactiveMongoTemplate.findOne(
+                withinDeadline(query, contextView), MovieInfo.class));
+    }
+
+    @Override
+    public Flux<MovieInfo> findAll(Integer year, MovieInfoProjection projection) {
+        var query = projection.applyTo(year == null ? new Query() : query(where("year").is(year)));
+        return Flux.deferContextual(contextView -> reactiveMongoTemplate.find(
+                withinDeadline(query, contextView), MovieInfo.class));
+    }
+
+    @Override
+    public Flux<MovieInfo> findPage(Integer year, PageCursor after, int limit, MovieInfoProjection projection) {
+        //with year, served by the (year, _id) index: the year is an equality, so its ids are in order
+        var query = projection.applyTo(year == null ? new Query() : query(where("year").is(year)));
+        if (after != null) {
+            query.addCriteria(after.idCriteria("movieInfoId"));
+        }
+        query.with(Sort.by("movieInfoId")).limit(limit);
+        return Flux.deferContextual(contextView -> reactiveMongoTemplate.find(
+                withinDeadline(query, contextView), MovieInfo.class));
+    }
+
+    @Override
+    public Mono<List<BulkWriteError>> insertUnordered(List<MovieInfo> movieInfos) {
+        var documents = movieInfos.stream()
+                .map(movieInfo -> {
+                    if (movieInfo.getMovieInfoId() == null) {
+                        movieInfo.setMovieInfoId(new ObjectId().toHexString());
+                    }
+                    //as the template does on insert
+                    movieInfo.setVersion(0L);
+                    var document = new Document();
+                    reactiveMongoTemplate.getConverter().write(movieInfo, document);
+                    return document;
+                })
+                .collect(Collectors.toList());
+
+        //the template's insertAll is ordered, and stops at the first failing document
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+                .map(result -> List.<BulkWriteError>of())
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(ex.getWriteErrors()));
+    }
+
+    @Override
+    public Mono<MovieInfo> update(String id, Map<String, Object> properties, Long expectedVersion) {
+        var query = query(where("movieInfoId").is(id));
+        if (expectedVersion != null) {
+            query.addCriteria(where("version").is(expectedVersion));
+        }
+        var update = new Update();
+        properties.forEach(update::set);
+        update.inc("version", 1);
+        return Mono.deferContextual(contextView -> reactiveMongoTemplate.findAndModify(
+                withinDeadline(query, contextView), update, FindAndModifyOptions.options().returnNew(true), MovieInfo.class));
+    }
+}
@@ -1,48 +1,166 @@
 package com.reactivespring.service;
 
+import com.reactivespring.domain.BulkItemResult;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.exception.MovieInfoVersionMismatchException;
+import com.reactivespring.pagination.CursorPage;
+import com.reactivespring.pagination.PageCursor;
+import com.reactivespring.repository.MovieInfoProjection;
 import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.util.Batches;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class MoviesInfoService {
 
+    private static final int DUPLICATE_KEY = 11000;
+
     private MovieInfoRepository movieInfoRepository;
 
-    public MoviesInfoService(MovieInfoRepository movieInfoRepository) {
+    private Validator validator;
+
+    private int bulkBatchSize;
+
+    private Duration bulkMaxBatchWait;
+
+    public MoviesInfoService(MovieInfoRepository movieInfoRepository,
+                             Validator validator,
+                             @Value("${bulk.batchSize:500}") int bulkBatchSize,
+                             @Value("${bulk.maxBatchWait:100ms}") Duration bulkMaxBatchWait) {
         this.movieInfoRepository = movieInfoRepository;
+        this.validator = validator;
+        this.bulkBatchSize = bulkBatchSize;
+        this.bulkMaxBatchWait = bulkMaxBatchWait;
     }
 
     public Mono<MovieInfo> addMovieInfo(MovieInfo movieInfo) {
         return movieInfoRepository.save(movieInfo);
     }
 
-    public Flux<MovieInfo> getAllMoviesInfo() {
-        return movieInfoRepository.findAll();
+    /**
+     * Validates and writes the movie infos a batch at a time, emitting one result per movie info as
+     * its batch completes. A batch is written once it is full or has waited bulk.maxBatchWait, and
+     * only the batch being written and the one being filled are held in memory.
+     */
+    public Flux<BulkItemResult> addMovieInfos(Flux<MovieInfo> movieInfos) {
+        return Batches.bySizeOrTime(movieInfos.index(), bulkBatchSize, bulkMaxBatchWait)
+                .concatMap(this::addBatch, 1);
+    }
+
+    private Flux<BulkItemResult> addBatch(List<Tuple2<Long, MovieInfo>> batch) {
+        var results = new ArrayList<BulkItemResult>();
+        var valid = new ArrayList<Tuple2<Long, MovieInfo>>();
+        for (var item : batch) {
+            var constraintViolations = validator.validate(item.getT2());
+            if (constraintViolations.isEmpty()) {
+                valid.add(item);
+            } else {
+                var errors = constraintViolations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining(","));
+                results.add(new BulkItemResult(item.getT1(), item.getT2().getMovieInfoId(), BulkItemResult.Status.INVALID, errors));
+            }
+        }
+        if (valid.isEmpty()) {
+            return Flux.fromIterable(results);
+        }
+
+        var movieInfos = valid.stream().map(Tuple2::getT2).collect(Collectors.toList());
+        return movieInfoRepository.insertUnordered(movieInfos)
+                .map(writeErrors -> {
+                    List<BulkItemResult> written = new ArrayList<>();
+                    valid.forEach(item -> written.add(new BulkItemResult(item.getT1(), item.getT2().getMovieInfoId(),
+                            BulkItemResult.Status.CREATED, null)));
+                    //write errors point into the inserted list, which is the valid items in order
+                    writeErrors.forEach(writeError -> {
+                        var result = written.get(writeError.getIndex());
+                        result.setStatus(writeError.getCode() == DUPLICATE_KEY
+                                ? BulkItemResult.Status.DUPLICATE
+                                : BulkItemResult.Status.FAILED);
+                        result.setError(writeError.getMessage());
+                    });
+                    return written;
+                })
+                .onErrorResume(ex -> Mono.just(valid.stream()
+                        .map(item -> new BulkItemResult(item.getT1(), item.getT2().getMovieInfoId(),
+                                BulkItemResult.Status.FAILED, ex.getMessage()))
+                        .collect(Collectors.toList())))
+                .flatMapIterable(written -> {
+                    results.addAll(written);
+                    results.sort(Comparator.comparingLong(BulkItemResult::getIndex));
+                    return results;
+                });
+    }
+
+    public Flux<MovieInfo> getAllMoviesInfo(Integer year, MovieInfoProjection projection) {
+        return movieInfoRepository.findAll(year, projection);
     }
 
-    public Mono<MovieInfo> getMovieInfoById(String id) {
-        return movieInfoRepository.findById(id);
+    public Mono<CursorPage<MovieInfo>> getMovieInfoPage(Integer year, PageCursor after, int limit,
+                                                        MovieInfoProjection projection) {
+        return CursorPage.of(movieInfoRepository.findPage(year, after, limit + 1, projection), limit,
+                movieInfo -> PageCursor.after(movieInfo.getMovieInfoId()).with("year", year));
     }
 
+    public Flux<MovieInfo> getMovieInfosByIds(List<String> ids, MovieInfoProjection projection) {
+        return movieInfoRepository.findAllById(ids, projection);
+    }
+
+    public Mono<MovieInfo> getMovieInfoById(String id, MovieInfoProjection projection) {
+        return movieInfoRepository.findById(id, projection);
+    }
+
+    /**
+     * Replaces the editable properties, in a single round trip.
+     */
     public Mono<MovieInfo> updateMovieInfo(MovieInfo movieInfo, String id) {
-        return movieInfoRepository.findById(id)
-                .flatMap(movieInfo1 -> {
-                    movieInfo1.setCast(movieInfo.getCast());
-                    movieInfo1.setName(movieInfo.getName());
-                    movieInfo1.setRelease_date(movieInfo.getRelease_date());
-                    movieInfo1.setYear(movieInfo.getYear());
-                    return movieInfoRepository.save(movieInfo1);
-                });
+        return movieInfoRepository.update(id, editableProperties(movieInfo, true), null);
     }
 
-    public Mono<Void> deleteMovieInfo(String id) {
-        return movieInfoRepository.deleteById(id);
+    /**
+     * Sets the editable properties that are not null in {@code changes}, in a single round trip.
+     * Empty if there is no movie info with this id, and fails with a
+     * {@link MovieInfoVersionMismatchException} if there is one but not at {@code expectedVersion}.
+     */
+    public Mono<MovieInfo> patchMovieInfo(String id, MovieInfo changes, Long expectedVersion) {
+        return movieInfoRepository.update(id, editableProperties(changes, false), expectedVersion)
+                //only on a miss, to tell a stale version from a missing movie info
+                .switchIfEmpty(Mono.defer(() -> expectedVersion == null
+                        ? Mono.empty()
+                        : movieInfoRepository.existsById(id)
+                        .filter(exists -> exists)
+                        .flatMap(exists -> Mono.<MovieInfo>error(new MovieInfoVersionMismatchException(
+                                "Movie info " + id + " is no longer at version " + expectedVersion)))));
+    }
+
+    public static Map<String, Object> editableProperties(MovieInfo movieInfo, boolean includeNulls) {
+        var properties = new LinkedHashMap<String, Object>();
+        properties.put("name", movieInfo.getName());
+        properties.put("year", movieInfo.getYear());
+        properties.put("cast", movieInfo.getCast());
+        properties.put("release_date", movieInfo.getRelease_date());
+        if (!includeNulls) {
+            properties.values().removeIf(value -> value == null);
+        }
+        return properties;
     }
 
-    public Flux<MovieInfo> getMovieInfoByYear(Integer year) {
-        return movieInfoRepository.findByYear(year);
+    public Mono<Void> deleteMovieInfo(String id) {
+        return movieInfoRepository.deleteById(id);
     }
 }
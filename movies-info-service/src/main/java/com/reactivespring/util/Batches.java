@@ -0,0 +1,66 @@
+package com.reactivespring.util;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups a stream into batches, honouring backpressure. Reactor's bufferTimeout and windowTimeout
+ * fail with an overflow when their timer fires while the downstream is still busy, so the time
+ * limit is driven by ticks merged into the stream instead, which are dropped when there is no demand.
+ */
+public class Batches {
+
+    private static final Object TICK = new Object();
+
+    private Batches() {
+    }
+
+    /**
+     * Emits a batch once it holds {@code maxSize} items, or once its first item is older than
+     * {@code maxWait}, checked every half {@code maxWait}. Only a bounded number of items is
+     * requested ahead of the batches the downstream asked for, however long {@code items} is.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Flux<List<T>> bySizeOrTime(Flux<T> items, int maxSize, Duration maxWait) {
+        return Flux.defer(() -> {
+            var itemsDone = Sinks.empty();
+            var maxWaitNanos = maxWait.toNanos();
+            var batch = new ArrayList<T>(maxSize);
+            var batchStart = new long[1];
+            var ticks = Flux.interval(maxWait.dividedBy(2))
+                    .onBackpressureDrop()
+                    .<Object>map(tick -> TICK)
+                    .takeUntilOther(itemsDone.asMono());
+
+            //ticks only ever decide when to emit, they never take a place in a batch
+            Flux<List<T>> batches = Flux.merge(items.doFinally(signalType -> itemsDone.tryEmitEmpty()), ticks)
+                    .handle((element, sink) -> {
+                        var now = Schedulers.parallel().now(TimeUnit.NANOSECONDS);
+                        if (element == TICK) {
+                            //a tick that waited behind a busy downstream finds a young batch, and is ignored
+                            if (batch.isEmpty() || now - batchStart[0] < maxWaitNanos) {
+                                return;
+                            }
+                        } else {
+                            if (batch.isEmpty()) {
+                                batchStart[0] = now;
+                            }
+                            batch.add((T) element);
+                            if (batch.size() < maxSize) {
+                                return;
+                            }
+                        }
+                        sink.next(new ArrayList<>(batch));
+                        batch.clear();
+                    });
+            return batches.concatWith(Mono.fromCallable(() -> batch.isEmpty() ? null : List.copyOf(batch)));
+        });
+    }
+}
@@ -1,6 +1,8 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.domain.BulkItemResult;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.pagination.Pagination;
 import com.reactivespring.repository.MovieInfoRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,6 +10,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -15,7 +20,10 @@ import reactor.test.StepVerifier;
 
 import java.net.URI;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -67,6 +75,50 @@ class MoviesInfoControllerIntgTest {
                 });
     }
 
+    @Test
+    void addMovieInfo_existingId() {
+        var movieInfo = new MovieInfo("abc", "Dark Knight Rises", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"));
+
+        webTestClient
+                .post()
+                .uri("/v1/movieinfos")
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void addMovieInfos_bulk() {
+        var ndjson = "{\"name\":\"Inception\",\"year\":2010,\"cast\":[\"Leonardo DiCaprio\"],\"release_date\":\"2010-07-16\"}\n"
+                + "{\"name\":\"\",\"year\":-1}\n"
+                + "{\"movieInfoId\":\"abc\",\"name\":\"Dark Knight Rises\",\"year\":2012}\n";
+
+        var results = webTestClient
+                .post()
+                .uri("/v1/movieinfos/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(ndjson)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(BulkItemResult.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertEquals(3, results.size());
+        assertEquals(BulkItemResult.Status.CREATED, results.get(0).getStatus());
+        assertNotNull(results.get(0).getMovieInfoId());
+        assertEquals(BulkItemResult.Status.INVALID, results.get(1).getStatus());
+        assertEquals("movieInfo.name must be present,movieInfo.year must be a positive value", results.get(1).getError());
+        assertEquals(BulkItemResult.Status.DUPLICATE, results.get(2).getStatus());
+
+        StepVerifier.create(movieInfoRepository.count())
+                .expectNext(4L)
+                .verifyComplete();
+    }
+
     @Test
     void addMovieInfo_stream() {
         var movieInfo = new MovieInfo(null, "Batman begins1", 2005, List.of("Michael Cane"), LocalDate.parse("2005-06-15"));
@@ -116,6 +168,53 @@ class MoviesInfoControllerIntgTest {
     }
 
 
+    @Test
+    void getAllMovieInfos_pages() {
+
+        var names = new ArrayList<String>();
+        String next = null;
+        var pages = 0;
+        do {
+            var uri = UriComponentsBuilder.fromUriString("/v1/movieinfos")
+                    .queryParam("limit", 2)
+                    .queryParamIfPresent("next", Optional.ofNullable(next))
+                    .build().toUri();
+            var result = webTestClient
+                    .get()
+                    .uri(uri)
+                    .exchange()
+                    .expectStatus()
+                    .is2xxSuccessful()
+                    .expectBodyList(MovieInfo.class)
+                    .returnResult();
+            result.getResponseBody().forEach(movieInfo -> names.add(movieInfo.getName()));
+            next = result.getResponseHeaders().getFirst(Pagination.NEXT_PAGE_HEADER);
+            pages++;
+        } while (next != null);
+
+        //"abc" is stored as a string and the generated ids as ObjectIds, which sort after all strings
+        assertEquals(2, pages);
+        assertEquals("Dark Knight Rises", names.get(0));
+        assertEquals(List.of("Batman Begins", "Dark Knight Rises", "The Dark Knight"), names.stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    void getAllMovieInfos_fields() {
+
+        webTestClient
+                .get()
+                .uri("/v1/movieinfos?year=2012&fields=name,year")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$[0].movieInfoId").isEqualTo("abc")
+                .jsonPath("$[0].name").isEqualTo("Dark Knight Rises")
+                .jsonPath("$[0].year").isEqualTo(2012)
+                .jsonPath("$[0].cast").doesNotExist()
+                .jsonPath("$[0].release_date").doesNotExist();
+    }
+
     @Test
     void getMovieInfoByYear() {
 
@@ -133,6 +232,23 @@ class MoviesInfoControllerIntgTest {
                 .hasSize(1);
     }
 
+    @Test
+    void getMovieInfosByIds() {
+
+        var uri = UriComponentsBuilder.fromUriString("/v1/movieinfos")
+                .queryParam("ids", "abc,def")
+                .buildAndExpand().toUri();
+
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+    }
+
     @Test
     void findMovieInfoById() {
 
@@ -190,6 +306,94 @@ class MoviesInfoControllerIntgTest {
     }
 
 
+    @Test
+    void patchMovieInfo() {
+        var id = "abc";
+        var changes = new MovieInfo(null, "Dark Knight Rises1", null, null, null);
+
+        var etag = webTestClient
+                .get()
+                .uri("/v1/movieinfos/{id}", id)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfo.class)
+                .getResponseHeaders()
+                .getETag();
+
+        webTestClient
+                .patch()
+                .uri("/v1/movieinfos/{id}", id)
+                .header(HttpHeaders.IF_MATCH, etag)
+                .bodyValue(changes)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(MovieInfo.class)
+                .consumeWith(movieInfoEntityExchangeResult -> {
+                    var patchedMovieInfo = movieInfoEntityExchangeResult.getResponseBody();
+                    assertNotNull(patchedMovieInfo);
+                    assertEquals("Dark Knight Rises1", patchedMovieInfo.getName());
+                    //untouched by the patch
+                    assertEquals(2012, patchedMovieInfo.getYear());
+                    assertEquals(List.of("Christian Bale", "Tom Hardy"), patchedMovieInfo.getCast());
+                });
+
+        //the same ETag is now stale
+        webTestClient
+                .patch()
+                .uri("/v1/movieinfos/{id}", id)
+                .header(HttpHeaders.IF_MATCH, etag)
+                .bodyValue(changes)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    void patchMovieInfo_notFound() {
+
+        webTestClient
+                .patch()
+                .uri("/v1/movieinfos/{id}", "def")
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(new MovieInfo(null, "Dark Knight Rises1", null, null, null))
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
+    @Test
+    void updateMovieInfo_stream() {
+        var id = "abc";
+        var movieInfo = new MovieInfo(null, "Dark Knight Rises1", 2005, List.of("Michael Cane"), LocalDate.parse("2005-06-15"));
+
+        webTestClient
+                .put()
+                .uri("/v1/movieinfos"+"/{id}", id)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful();
+
+        var movieStreamFlux =  webTestClient
+                .get()
+                .uri("/v1/movieinfos/stream")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfo.class)
+                .getResponseBody();
+
+        StepVerifier.create(movieStreamFlux)
+                .assertNext(movieInfo1 -> {
+                    assertEquals("Dark Knight Rises1", movieInfo1.getName());
+                })
+                .thenCancel()
+                .verify();
+    }
+
+
     @Test
     void updateMovieInfo_notfound() {
         var id = "def";
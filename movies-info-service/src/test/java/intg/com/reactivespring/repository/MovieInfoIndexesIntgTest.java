@@ -0,0 +1,173 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.deadline.Deadline;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.pagination.PageCursor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataMongoTest
+@ActiveProfiles("test")
+@Import({MovieInfoIndexes.class, FindCommands.class})
+class MovieInfoIndexesIntgTest {
+
+    @Autowired
+    MovieInfoRepository movieInfoRepository;
+
+    @Autowired
+    MovieInfoIndexes movieInfoIndexes;
+
+    @Autowired
+    FindCommands findCommands;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        var movieinfos = List.of(new MovieInfo(null, "Batman Begins",
+                        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")),
+                new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+
+        movieInfoRepository.saveAll(movieinfos)
+                .blockLast();
+        findCommands.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieInfoRepository.deleteAll().block();
+    }
+
+    @Test
+    void findAll_byYear_usesIndex() {
+        //when
+        movieInfoRepository.findAll(2005, MovieInfoProjection.ALL).blockLast();
+
+        //then
+        assertIndexScan(findCommands.explainLast(reactiveMongoTemplate));
+    }
+
+    @Test
+    void findPage_byYear_usesIndexInOrder() {
+        //when
+        movieInfoRepository.findPage(2005, null, 10, MovieInfoProjection.of(List.of("name"))).blockLast();
+
+        //then
+        var winningPlan = findCommands.explainLast(reactiveMongoTemplate);
+        assertIndexScan(winningPlan);
+        assertNoSort(winningPlan);
+    }
+
+    @Test
+    void findPage_byYearAfterCursor_usesIndexInOrder() {
+        //given
+        var after = PageCursor.after(new ObjectId().toHexString());
+
+        //when
+        movieInfoRepository.findPage(2005, after, 10, MovieInfoProjection.ALL).blockLast();
+
+        //then
+        var winningPlan = findCommands.explainLast(reactiveMongoTemplate);
+        assertIndexScan(winningPlan);
+        assertNoSort(winningPlan);
+    }
+
+    @Test
+    void findByName_usesIndex() {
+        //when
+        movieInfoRepository.findByName("batman begins").block();
+
+        //then
+        assertIndexScan(findCommands.explainLast(reactiveMongoTemplate));
+    }
+
+    @Test
+    void findByYearAndName_boundedByDeadline() {
+        //when
+        movieInfoRepository.findByYear(2005)
+                .contextWrite(Deadline.after(Duration.ofSeconds(5))::storeIn)
+                .blockLast();
+        var byYear = findCommands.last();
+        movieInfoRepository.findByName("batman begins")
+                .contextWrite(Deadline.after(Duration.ofSeconds(5))::storeIn)
+                .block();
+        var byName = findCommands.last();
+
+        //then
+        assertTrue(byYear.containsKey("maxTimeMS"));
+        assertTrue(byName.containsKey("maxTimeMS"));
+        assertTrue(byName.containsKey("collation"));
+    }
+
+    @Test
+    void findByName_caseInsensitive() {
+
+        var byName = movieInfoRepository.findByName("batman BEGINS");
+
+        StepVerifier.create(byName)
+                .assertNext(movieInfo -> assertEquals("Batman Begins", movieInfo.getName()))
+                .verifyComplete();
+    }
+
+    @Test
+    void ensureIndexes_dropsSupersededYearIndex() {
+        //given
+        var indexOps = reactiveMongoTemplate.indexOps(MovieInfo.class);
+        indexOps.ensureIndex(new Index("year", Sort.Direction.ASC).named(MovieInfoIndexes.SUPERSEDED_YEAR_INDEX)).block();
+
+        //when
+        movieInfoIndexes.ensureIndexes();
+
+        //then
+        var indexNames = indexOps.getIndexInfo().map(IndexInfo::getName).collectList().block();
+        assertFalse(indexNames.contains(MovieInfoIndexes.SUPERSEDED_YEAR_INDEX), "indexes " + indexNames);
+        assertTrue(indexNames.contains("year_id"), "indexes " + indexNames);
+    }
+
+    //a blocking sort would read the whole year before returning the first page
+    private static void assertNoSort(Document winningPlan) {
+        var stages = new ArrayList<String>();
+        collectStages(winningPlan, stages);
+        assertFalse(stages.contains("SORT"), "in-memory sort in " + winningPlan.toJson());
+    }
+
+    private static void assertIndexScan(Document winningPlan) {
+        var stages = new ArrayList<String>();
+        collectStages(winningPlan, stages);
+        assertFalse(stages.contains("COLLSCAN"), "collection scan in " + winningPlan.toJson());
+        assertTrue(stages.contains("IXSCAN"), "no index scan in " + winningPlan.toJson());
+    }
+
+    private static void collectStages(Document plan, List<String> stages) {
+        stages.add(plan.getString("stage"));
+        if (plan.containsKey("inputStage")) {
+            collectStages(plan.get("inputStage", Document.class), stages);
+        }
+        if (plan.containsKey("inputStages")) {
+            plan.getList("inputStages", Document.class).forEach(input -> collectStages(input, stages));
+        }
+    }
+}
@@ -1,15 +1,26 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.deadline.Deadline;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.exception.MovieInfoVersionMismatchException;
+import com.reactivespring.pagination.CursorPage;
+import com.reactivespring.pagination.PageCursor;
+import com.reactivespring.pagination.Pagination;
+import com.reactivespring.repository.MovieInfoProjection;
 import com.reactivespring.service.MoviesInfoService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -17,11 +28,14 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = MoviesInfoController.class)
 @AutoConfigureWebTestClient
+@Import(Pagination.class)
 public class MoviesInfoControllerUnitTest {
 
     @Autowired
@@ -41,7 +55,8 @@ public class MoviesInfoControllerUnitTest {
                 new MovieInfo("abc", "Dark Knight Rises",
                         2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
 
-        when(moviesInfoService.getAllMoviesInfo()).thenReturn(Flux.fromIterable(movieinfos));
+        when(moviesInfoService.getMovieInfoPage(isNull(), isNull(), eq(100), eq(MovieInfoProjection.ALL)))
+                .thenReturn(CursorPage.of(Flux.fromIterable(movieinfos), 2, movieInfo -> PageCursor.after("abc")));
 
         webTestClient
                 .get()
@@ -49,8 +64,76 @@ public class MoviesInfoControllerUnitTest {
                 .exchange()
                 .expectStatus()
                 .is2xxSuccessful()
+                .expectHeader()
+                .valueEquals(Pagination.NEXT_PAGE_HEADER, PageCursor.after("abc").encode())
                 .expectBodyList(MovieInfo.class)
-                .hasSize(3);
+                .hasSize(2);
+    }
+
+    @Test
+    void getAllMoviesInfo_unpagedDisabled() {
+
+        webTestClient
+                .get()
+                .uri("/v1/movieinfos?unpaged=true")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getAllMoviesInfo_invalidNext() {
+
+        webTestClient
+                .get()
+                .uri("/v1/movieinfos?next=not-a-token")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getAllMoviesInfo_nextOfAnotherYear() {
+
+        var next = PageCursor.after("abc").with("year", 2005).encode();
+
+        webTestClient
+                .get()
+                .uri("/v1/movieinfos?year=2008&next={next}", next)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getMovieInfosByIds() {
+
+        var movieinfos = List.of(new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")),
+                new MovieInfo("def", "The Dark Knight",
+                        2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18")));
+
+        when(moviesInfoService.getMovieInfosByIds(eq(List.of("abc", "def")), isA(MovieInfoProjection.class))).thenReturn(Flux.fromIterable(movieinfos));
+
+        webTestClient
+                .get()
+                .uri("/v1/movieinfos?ids=abc,def")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getMovieInfoById_unknownField() {
+
+        webTestClient
+                .get()
+                .uri("/v1/movieinfos/{id}?fields=name,budget", "abc")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
     }
 
     @Test
@@ -60,7 +143,7 @@ public class MoviesInfoControllerUnitTest {
 
         var movieInfo = new MovieInfo(null, "Dark Knight Rises", 2005, List.of("Michael Cane"), LocalDate.parse("2005-06-15"));
 
-        when(moviesInfoService.getMovieInfoById(movieInfoId)).thenReturn(Mono.just(movieInfo));
+        when(moviesInfoService.getMovieInfoById(eq(movieInfoId), isA(MovieInfoProjection.class))).thenReturn(Mono.just(movieInfo));
 
         webTestClient
                 .get()
@@ -95,6 +178,25 @@ public class MoviesInfoControllerUnitTest {
                 });
     }
 
+    @Test
+    void addMovieInfo_existingId() {
+
+        var movieInfo = new MovieInfo("abc", "Batman begins1", 2005, List.of("Michael Cane"), LocalDate.parse("2005-06-15"));
+
+        when(moviesInfoService.addMovieInfo(isA(MovieInfo.class))).thenReturn(
+                Mono.error(new DuplicateKeyException("E11000 duplicate key error collection: local.movieInfo index: _id_ dup key: { _id: \"abc\" }")));
+
+        webTestClient
+                .post()
+                .uri("/v1/movieinfos")
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT)
+                .expectBody(String.class)
+                .isEqualTo("Movie info already exists");
+    }
+
     @Test
     void updateMovieInfo() {
 
@@ -121,6 +223,58 @@ public class MoviesInfoControllerUnitTest {
                 });
     }
 
+    @Test
+    void patchMovieInfo() {
+
+        var id = "abc";
+        var changes = new MovieInfo(null, "Dark Knight Rises", null, null, null);
+
+        when(moviesInfoService.patchMovieInfo(eq(id), isA(MovieInfo.class), eq(3L))).thenReturn(Mono.just(
+                new MovieInfo(id, "Dark Knight Rises", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"), 4L)));
+
+        webTestClient
+                .patch()
+                .uri("/v1/movieinfos/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .bodyValue(changes)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"4\"")
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Dark Knight Rises")
+                .jsonPath("$.year").isEqualTo(2012);
+    }
+
+    @Test
+    void patchMovieInfo_invalidChange() {
+
+        webTestClient
+                .patch()
+                .uri("/v1/movieinfos/{id}", "abc")
+                .bodyValue(new MovieInfo(null, "", -1, null, null))
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void patchMovieInfo_versionMismatch() {
+
+        when(moviesInfoService.patchMovieInfo(eq("abc"), isA(MovieInfo.class), eq(3L)))
+                .thenReturn(Mono.error(new MovieInfoVersionMismatchException("Movie info abc is no longer at version 3")));
+
+        webTestClient
+                .patch()
+                .uri("/v1/movieinfos/{id}", "abc")
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .bodyValue(new MovieInfo(null, "Dark Knight Rises", null, null, null))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
     @Test
     void deleteMovieInfo() {
 
@@ -138,6 +292,38 @@ public class MoviesInfoControllerUnitTest {
                 .isEmpty();
     }
 
+    @Test
+    void deleteMovieInfo_publishesTombstone() {
+
+        var id = "abc";
+
+        when(moviesInfoService.deleteMovieInfo(anyString())).thenReturn(Mono.empty());
+
+        webTestClient
+                .delete()
+                .uri("/v1/movieinfos"+"/{id}", id)
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        var movieStreamFlux = webTestClient
+                .get()
+                .uri("/v1/movieinfos/stream")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfo.class)
+                .getResponseBody();
+
+        StepVerifier.create(movieStreamFlux)
+                .assertNext(movieInfo -> {
+                    assertEquals(id, movieInfo.getMovieInfoId());
+                    assertEquals(true, movieInfo.getDeleted());
+                })
+                .thenCancel()
+                .verify();
+    }
+
     @Test
     void addMovieInfo_validation() {
 
@@ -165,6 +351,17 @@ public class MoviesInfoControllerUnitTest {
                 })**/;
     }
 
+    @Test
+    void getMovieInfoById_deadlineExceeded() {
 
+        when(moviesInfoService.getMovieInfoById(anyString(), isA(MovieInfoProjection.class))).thenReturn(Mono.never());
 
+        webTestClient
+                .get()
+                .uri("/v1/movieinfos/{id}", "abc")
+                .header(Deadline.TIMEOUT_HEADER, "100")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+    }
 }
@@ -0,0 +1,59 @@
+package com.reactivespring.pagination;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageCursorTest {
+
+    @Test
+    void decode_keepsTheIdType() {
+        //given
+        var objectId = new ObjectId().toHexString();
+
+        //then
+        assertEquals(new ObjectId(objectId), PageCursor.decode(PageCursor.after(objectId).encode()).get("_id"));
+        assertEquals("abc", PageCursor.decode(PageCursor.after("abc").encode()).get("_id"));
+    }
+
+    @Test
+    void decode_invalidToken() {
+        //given
+        var numericId = Base64.getUrlEncoder().encodeToString("{\"_id\": 1}".getBytes());
+
+        //then
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not a token"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(numericId));
+    }
+
+    @Test
+    void readWith_sameFilter() {
+        //given
+        var cursor = PageCursor.decode(PageCursor.after("abc").with("year", 2005).encode());
+        var unfiltered = PageCursor.decode(PageCursor.after("abc").with("year", null).encode());
+
+        //then
+        assertTrue(cursor.readWith(Map.of("year", 2005)));
+        assertTrue(unfiltered.readWith(Collections.singletonMap("year", null)));
+        assertTrue(PageCursor.decode(PageCursor.after("abc").encode()).readWith(Map.of()));
+    }
+
+    @Test
+    void readWith_otherFilter() {
+        //given
+        var cursor = PageCursor.decode(PageCursor.after("abc").with("year", 2005).encode());
+
+        //then
+        assertFalse(cursor.readWith(Map.of("year", 2008)));
+        assertFalse(cursor.readWith(Map.of()));
+        assertFalse(PageCursor.decode(PageCursor.after("abc").encode()).readWith(Map.of("year", 2005)));
+    }
+}
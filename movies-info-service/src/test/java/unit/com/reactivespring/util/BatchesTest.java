@@ -0,0 +1,77 @@
+package com.reactivespring.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchesTest {
+
+    @Test
+    void bySizeOrTime_fullBatches() {
+
+        var batches = Batches.bySizeOrTime(Flux.range(0, 10), 4, Duration.ofSeconds(1));
+
+        StepVerifier.create(batches)
+                .expectNext(List.of(0, 1, 2, 3), List.of(4, 5, 6, 7), List.of(8, 9))
+                .verifyComplete();
+    }
+
+    @Test
+    void bySizeOrTime_partialBatchFlushedAfterMaxWait() {
+
+        StepVerifier.withVirtualTime(() -> Batches.bySizeOrTime(
+                        Flux.interval(Duration.ofMillis(350)).take(5), 100, Duration.ofSeconds(1)))
+                //checked at 1.5s, 1.15s after the first item
+                .thenAwait(Duration.ofMillis(1500))
+                .expectNext(List.of(0L, 1L, 2L, 3L))
+                //the last batch is emitted when the items complete
+                .thenAwait(Duration.ofMillis(250))
+                .expectNext(List.of(4L))
+                .verifyComplete();
+    }
+
+    @Test
+    void bySizeOrTime_longPauseBetweenItems() {
+
+        StepVerifier.withVirtualTime(() -> Batches.bySizeOrTime(
+                        Flux.concat(Flux.just(1, 2), Flux.just(3, 4).delaySubscription(Duration.ofMinutes(10))),
+                        3, Duration.ofSeconds(1)))
+                .thenAwait(Duration.ofMillis(1500))
+                .expectNext(List.of(1, 2))
+                //the idle upload holds no batch, whatever number of ticks passed
+                .expectNoEvent(Duration.ofMinutes(10).minusMillis(1500))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNext(List.of(3, 4))
+                .verifyComplete();
+    }
+
+    @Test
+    void bySizeOrTime_slowDownstreamKeepsBatchesFullAndBounded() {
+
+        var emitted = new AtomicLong();
+        var processed = new AtomicLong();
+        var maxInFlight = new AtomicLong();
+        var items = Flux.range(0, 500)
+                .delayElements(Duration.ofMillis(1))
+                .doOnNext(item -> maxInFlight.accumulateAndGet(emitted.incrementAndGet() - processed.get(), Math::max));
+
+        var batchSizes = Batches.bySizeOrTime(items, 10, Duration.ofMillis(5))
+                .concatMap(batch -> Mono.delay(Duration.ofMillis(20)).thenReturn(batch), 1)
+                .doOnNext(batch -> processed.addAndGet(batch.size()))
+                .map(List::size)
+                .collectList()
+                .block();
+
+        assertEquals(500, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.size() <= 60, "batches of " + batchSizes);
+        assertTrue(maxInFlight.get() < 100, "in flight " + maxInFlight.get());
+    }
+}
@@ -0,0 +1,59 @@
+package com.reactivespring.loadtest;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Seeds movie infos and reviews through the services' own write APIs. Movie info ids are
+ * numeric strings, as the reviews reference them by a numeric movieInfoId.
+ */
+public class DatasetSeeder {
+
+    private static final int CONCURRENCY = 32;
+
+    private final WebClient webClient;
+
+    public DatasetSeeder(WebClient webClient) {
+        this.webClient = webClient;
+    }
+
+    public void seed(String moviesInfoUrl, String reviewsUrl, int movies, int reviewsPerMovie) {
+        var seededMovies = Flux.range(1, movies)
+                .flatMap(id -> post(moviesInfoUrl, movieInfo(String.valueOf(id), "Movie " + id)), CONCURRENCY)
+                .count()
+                .block();
+        var seededReviews = Flux.range(1, movies)
+                .flatMap(id -> Flux.range(0, reviewsPerMovie).map(i -> review(id, i)))
+                .flatMap(review -> post(reviewsUrl, review), CONCURRENCY)
+                .count()
+                .block();
+        System.out.println("seeded " + seededMovies + " movie infos and " + seededReviews + " reviews");
+    }
+
+    private Mono<ResponseEntity<Void>> post(String url, Map<String, Object> body) {
+        return webClient.post()
+                .uri(url)
+                .bodyValue(body)
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    static Map<String, Object> movieInfo(String movieInfoId, String name) {
+        return Map.of("movieInfoId", movieInfoId,
+                "name", name,
+                "year", 2005,
+                "cast", List.of("Christian Bale", "Michael Cane"),
+                "release_date", "2005-06-15");
+    }
+
+    static Map<String, Object> review(long movieInfoId, int index) {
+        return Map.of("movieInfoId", movieInfoId,
+                "comment", "Review " + index + " of movie " + movieInfoId,
+                "rating", (double) (index % 10));
+    }
+}
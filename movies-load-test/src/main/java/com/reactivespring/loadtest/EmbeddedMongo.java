@@ -0,0 +1,39 @@
+package com.reactivespring.loadtest;
+
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.MongodConfig;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.process.runtime.Network;
+
+import java.io.IOException;
+
+/**
+ * A throwaway mongod shared by movies-info-service and movies-review-service.
+ */
+public class EmbeddedMongo implements AutoCloseable {
+
+    private final MongodExecutable executable;
+
+    private final int port;
+
+    public EmbeddedMongo() throws IOException {
+        this.port = Network.getFreeServerPort();
+        this.executable = MongodStarter.getDefaultInstance()
+                .prepare(MongodConfig.builder()
+                        .version(Version.Main.PRODUCTION)
+                        .net(new Net(port, Network.localhostIsIPv6()))
+                        .build());
+        executable.start();
+    }
+
+    public int port() {
+        return port;
+    }
+
+    @Override
+    public void close() {
+        executable.stop();
+    }
+}
@@ -0,0 +1,54 @@
+package com.reactivespring.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies in microseconds and outcome counts of one operation, recorded from any thread.
+ */
+public class LatencyStats {
+
+    private final String name;
+
+    private final Histogram histogram = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(10), 3);
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    public LatencyStats(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public void recordSince(long startNanos) {
+        var micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        histogram.recordValue(Math.min(micros, histogram.getHighestTrackableValue()));
+    }
+
+    public void recordError() {
+        errors.incrementAndGet();
+    }
+
+    public void recordDropped() {
+        dropped.incrementAndGet();
+    }
+
+    public Histogram histogram() {
+        return histogram;
+    }
+
+    public long errors() {
+        return errors.get();
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+}
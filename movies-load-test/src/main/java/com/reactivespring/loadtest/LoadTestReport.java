@@ -0,0 +1,96 @@
+package com.reactivespring.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes one HdrHistogram percentile distribution ({@code <operation>.hgrm}, in milliseconds) per
+ * operation and a {@code summary.json} with the settings, the commit and the headline numbers,
+ * so that runs can be compared across commits.
+ */
+public class LoadTestReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final Path dir;
+
+    public LoadTestReport(Path dir) {
+        this.dir = dir;
+    }
+
+    public void write(LoadTestSettings settings, List<LatencyStats> stats) throws IOException {
+        var measured = settings.duration.toMillis() / 1000.0;
+        var operations = new LinkedHashMap<String, Object>();
+        for (var latencyStats : stats) {
+            try (var out = new PrintStream(Files.newOutputStream(dir.resolve(latencyStats.name() + ".hgrm")))) {
+                latencyStats.histogram().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+            operations.put(latencyStats.name(), summary(latencyStats, measured));
+        }
+
+        var summary = new LinkedHashMap<String, Object>();
+        summary.put("commit", settings.commit);
+        summary.put("timestamp", Instant.now().toString());
+        summary.put("settings", settings.asMap());
+        summary.put("operations", operations);
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(dir.resolve("summary.json").toFile(), summary);
+
+        print(operations);
+        System.out.println("report written to " + dir.toAbsolutePath());
+    }
+
+    private static Map<String, Object> summary(LatencyStats latencyStats, double measuredSeconds) {
+        var histogram = latencyStats.histogram();
+        var summary = new LinkedHashMap<String, Object>();
+        summary.put("count", histogram.getTotalCount());
+        summary.put("errors", latencyStats.errors());
+        summary.put("dropped", latencyStats.dropped());
+        summary.put("throughputPerSecond", round(histogram.getTotalCount() / measuredSeconds));
+        summary.put("meanMillis", round(histogram.getMean() / MICROS_PER_MILLI));
+        summary.put("p50Millis", millis(histogram.getValueAtPercentile(50)));
+        summary.put("p90Millis", millis(histogram.getValueAtPercentile(90)));
+        summary.put("p99Millis", millis(histogram.getValueAtPercentile(99)));
+        summary.put("p999Millis", millis(histogram.getValueAtPercentile(99.9)));
+        summary.put("maxMillis", millis(histogram.getMaxValue()));
+        return summary;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> operations) {
+        var columns = List.of("count", "errors", "dropped", "throughputPerSecond",
+                "p50Millis", "p90Millis", "p99Millis", "p999Millis", "maxMillis");
+        var header = new StringBuilder(String.format("%-24s", "operation"));
+        columns.forEach(column -> header.append(String.format("%20s", column)));
+        System.out.println(header);
+        operations.forEach((name, values) -> {
+            var line = new StringBuilder(String.format("%-24s", name));
+            columns.forEach(column -> line.append(String.format("%20s", ((Map<String, Object>) values).get(column))));
+            System.out.println(line);
+        });
+    }
+
+    private static double millis(long micros) {
+        return round(micros / MICROS_PER_MILLI);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    static Path runDir(Path reportDir, String commit) throws IOException {
+        var timestamp = Instant.now().truncatedTo(ChronoUnit.SECONDS).toString().replace(":", "");
+        return Files.createDirectories(reportDir.resolve(commit + "-" + timestamp));
+    }
+}
@@ -0,0 +1,152 @@
+package com.reactivespring.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Boots movies-info-service and movies-review-service against an embedded Mongo and
+ * movies-service in front of them, seeds the dataset and drives the workload described by
+ * {@link LoadTestSettings}. Run it with {@code ./gradlew :movies-load-test:loadTest}.
+ */
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        var settings = new LoadTestSettings();
+        var runDir = LoadTestReport.runDir(settings.reportDir, settings.commit);
+
+        var connectionProvider = ConnectionProvider.builder("load-test")
+                .maxConnections(settings.maxInFlight)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        var webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+
+        try (var mongo = new EmbeddedMongo();
+             var moviesInfoService = ServiceProcess.start("movies-info-service",
+                     settings.moviesInfoServiceClasspath, "com.reactivespring.MoviesInfoServiceApplication",
+                     settings.serviceJvmArgs, runDir, mongoArgs(mongo));
+             var moviesReviewService = ServiceProcess.start("movies-review-service",
+                     settings.moviesReviewServiceClasspath, "com.reactivespring.MoviesReviewServiceApplication",
+                     settings.serviceJvmArgs, runDir, mongoArgs(mongo))) {
+
+            moviesInfoService.awaitStarted(webClient, settings.startupTimeout);
+            moviesReviewService.awaitStarted(webClient, settings.startupTimeout);
+            var moviesInfoUrl = moviesInfoService.baseUrl() + "/v1/movieinfos";
+            var reviewsUrl = moviesReviewService.baseUrl() + "/v1/reviews";
+
+            new DatasetSeeder(webClient).seed(moviesInfoUrl, reviewsUrl, settings.movies, settings.reviewsPerMovie);
+
+            try (var moviesService = ServiceProcess.start("movies-service",
+                    settings.moviesServiceClasspath, "com.reactivespring.MoviesServiceApplication",
+                    settings.serviceJvmArgs, runDir,
+                    List.of("--restClient.moviesInfoUrl=" + moviesInfoUrl, "--restClient.reviewsUrl=" + reviewsUrl))) {
+
+                moviesService.awaitStarted(webClient, settings.startupTimeout);
+                var moviesUrl = moviesService.baseUrl() + "/v1/movies";
+
+                try (var streamSubscribers = new StreamSubscribers(webClient, moviesUrl + "/stream",
+                        settings.streamSubscribers)) {
+                    var driver = new OpenModelDriver(settings.rate, settings.maxInFlight);
+                    registerOperations(driver, settings, webClient, moviesUrl, moviesInfoUrl, reviewsUrl,
+                            streamSubscribers);
+
+                    System.out.println("driving " + settings.rate + " requests/s for " + settings.warmup
+                            + " warmup and " + settings.duration);
+                    driver.run(settings.warmup, settings.duration, Duration.ofSeconds(30));
+
+                    var stats = new ArrayList<>(driver.stats());
+                    stats.addAll(streamSubscribers.stats());
+                    new LoadTestReport(runDir).write(settings, stats);
+                }
+
+                // the upstream and endpoint metrics of movies-service, for a look behind the percentiles
+                var prometheus = webClient.get()
+                        .uri(moviesService.baseUrl() + "/actuator/prometheus")
+                        .retrieve()
+                        .bodyToMono(String.class)
+                        .onErrorReturn("")
+                        .block();
+                Files.writeString(runDir.resolve("movies-service-metrics.txt"), prometheus == null ? "" : prometheus);
+            }
+        } finally {
+            connectionProvider.dispose();
+        }
+    }
+
+    private static List<String> mongoArgs(EmbeddedMongo mongo) {
+        return List.of("--spring.data.mongodb.host=localhost", "--spring.data.mongodb.port=" + mongo.port());
+    }
+
+    private static void registerOperations(OpenModelDriver driver, LoadTestSettings settings, WebClient webClient,
+                                           String moviesUrl, String moviesInfoUrl, String reviewsUrl,
+                                           StreamSubscribers streamSubscribers) {
+        var mix = settings.mix;
+        driver.operation("movieById", mix.getOrDefault("movieById", 0), (sequence, measured) ->
+                        webClient.get()
+                                .uri(moviesUrl + "/{id}", randomMovieId(settings))
+                                .retrieve()
+                                .bodyToMono(JsonNode.class))
+                .operation("movieSummary", mix.getOrDefault("movieSummary", 0), (sequence, measured) ->
+                        webClient.get()
+                                .uri(moviesUrl + "/{id}?reviews=summary", randomMovieId(settings))
+                                .retrieve()
+                                .bodyToMono(JsonNode.class))
+                .operation("moviesByIds", mix.getOrDefault("moviesByIds", 0), (sequence, measured) ->
+                        webClient.get()
+                                .uri(moviesUrl + "?ids={ids}", IntStream.range(0, settings.idsBatchSize)
+                                        .mapToObj(i -> randomMovieId(settings))
+                                        .collect(Collectors.joining(",")))
+                                .retrieve()
+                                .bodyToFlux(JsonNode.class)
+                                .then())
+                .operation("movieInfoById", mix.getOrDefault("movieInfoById", 0), (sequence, measured) ->
+                        webClient.get()
+                                .uri(moviesInfoUrl + "/{id}", randomMovieId(settings))
+                                .retrieve()
+                                .bodyToMono(JsonNode.class))
+                .operation("addReview", mix.getOrDefault("addReview", 0), (sequence, measured) ->
+                        webClient.post()
+                                .uri(reviewsUrl)
+                                .bodyValue(DatasetSeeder.review(Long.parseLong(randomMovieId(settings)),
+                                        (int) sequence))
+                                .retrieve()
+                                .toBodilessEntity())
+                .operation("addMovieInfo", mix.getOrDefault("addMovieInfo", 0), (sequence, measured) -> {
+                    var name = "load-" + sequence;
+                    if (measured) {
+                        streamSubscribers.sent(name, System.nanoTime());
+                    }
+                    return webClient.post()
+                            .uri(moviesInfoUrl)
+                            .bodyValue(DatasetSeeder.movieInfo(name, name))
+                            .retrieve()
+                            .toBodilessEntity();
+                });
+        var unknown = mix.keySet().stream()
+                .filter(name -> driver.stats().stream().noneMatch(stats -> stats.name().equals(name)))
+                .filter(name -> mix.get(name) > 0)
+                .collect(Collectors.toList());
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("unknown operations in loadTest.mix: " + unknown);
+        }
+    }
+
+    private static String randomMovieId(LoadTestSettings settings) {
+        return String.valueOf(ThreadLocalRandom.current().nextInt(1, settings.movies + 1));
+    }
+
+    private LoadTestRunner() {
+    }
+}
@@ -0,0 +1,97 @@
+package com.reactivespring.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test configuration, read from {@code loadTest.*} system properties (the Gradle task
+ * forwards {@code -PloadTest.*} project properties).
+ */
+public class LoadTestSettings {
+
+    private static final String PREFIX = "loadTest.";
+
+    /**
+     * number of seeded movies, and reviews seeded for each of them
+     */
+    final int movies = intValue("movies", 1000);
+    final int reviewsPerMovie = intValue("reviewsPerMovie", 10);
+
+    /**
+     * arrival rate in requests per second, independent of how fast the services respond
+     */
+    final int rate = intValue("rate", 200);
+    final Duration warmup = durationValue("warmup", "10s");
+    final Duration duration = durationValue("duration", "60s");
+
+    /**
+     * requests still outstanding beyond this are not sent but counted as dropped
+     */
+    final int maxInFlight = intValue("maxInFlight", 5000);
+
+    /**
+     * operation name to relative weight, e.g. movieById=60,addReview=10
+     */
+    final Map<String, Integer> mix = mixValue("mix",
+            "movieById=55,movieSummary=15,moviesByIds=5,movieInfoById=5,addReview=15,addMovieInfo=5");
+    final int idsBatchSize = intValue("idsBatchSize", 20);
+
+    /**
+     * subscribers of the movie info stream, split between the decoded and the raw relay
+     */
+    final int streamSubscribers = intValue("streamSubscribers", 4);
+
+    final String serviceJvmArgs = stringValue("serviceJvmArgs", "-Xmx512m");
+    final Duration startupTimeout = durationValue("startupTimeout", "120s");
+
+    final String moviesInfoServiceClasspath = stringValue("moviesInfoService.classpath", null);
+    final String moviesReviewServiceClasspath = stringValue("moviesReviewService.classpath", null);
+    final String moviesServiceClasspath = stringValue("moviesService.classpath", null);
+
+    final Path reportDir = Path.of(stringValue("reportDir", "build/reports/load-test"));
+    final String commit = stringValue("commit", "unknown");
+
+    private static String stringValue(String name, String defaultValue) {
+        var value = System.getProperty(PREFIX + name, defaultValue);
+        if (value == null) {
+            throw new IllegalStateException("missing system property " + PREFIX + name);
+        }
+        return value;
+    }
+
+    private static int intValue(String name, int defaultValue) {
+        return Integer.parseInt(stringValue(name, String.valueOf(defaultValue)));
+    }
+
+    private static Duration durationValue(String name, String defaultValue) {
+        return DurationStyle.detectAndParse(stringValue(name, defaultValue));
+    }
+
+    private static Map<String, Integer> mixValue(String name, String defaultValue) {
+        var mix = new LinkedHashMap<String, Integer>();
+        for (var entry : stringValue(name, defaultValue).split(",")) {
+            var parts = entry.trim().split("=");
+            mix.put(parts[0], Integer.parseInt(parts[1]));
+        }
+        return mix;
+    }
+
+    Map<String, Object> asMap() {
+        var settings = new LinkedHashMap<String, Object>();
+        settings.put("movies", movies);
+        settings.put("reviewsPerMovie", reviewsPerMovie);
+        settings.put("rate", rate);
+        settings.put("warmup", warmup.toString());
+        settings.put("duration", duration.toString());
+        settings.put("maxInFlight", maxInFlight);
+        settings.put("mix", mix);
+        settings.put("idsBatchSize", idsBatchSize);
+        settings.put("streamSubscribers", streamSubscribers);
+        settings.put("serviceJvmArgs", serviceJvmArgs);
+        return settings;
+    }
+}
@@ -0,0 +1,135 @@
+package com.reactivespring.loadtest;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a constant arrival rate, whether or not earlier requests have completed
+ * (an open workload model). Latency is measured from the time a request was scheduled to be
+ * sent, so a slow service shows up as queueing in the percentiles instead of silently lowering
+ * the request rate (coordinated omission).
+ */
+public class OpenModelDriver {
+
+    @FunctionalInterface
+    public interface Operation {
+
+        /**
+         * @param sequence number of the request within the run
+         * @param measured whether the request is outside the warmup
+         */
+        Mono<?> execute(long sequence, boolean measured);
+    }
+
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+
+    private final Map<String, Integer> weights = new LinkedHashMap<>();
+
+    private final Map<String, LatencyStats> stats = new LinkedHashMap<>();
+
+    private final AtomicLong inFlight = new AtomicLong();
+
+    private final int rate;
+
+    private final int maxInFlight;
+
+    public OpenModelDriver(int rate, int maxInFlight) {
+        this.rate = rate;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public OpenModelDriver operation(String name, int weight, Operation operation) {
+        if (weight > 0) {
+            operations.put(name, operation);
+            weights.put(name, weight);
+            stats.put(name, new LatencyStats(name));
+        }
+        return this;
+    }
+
+    public List<LatencyStats> stats() {
+        return new ArrayList<>(stats.values());
+    }
+
+    /**
+     * Runs the warmup and then the measured period, and waits up to {@code drainTimeout} for the
+     * requests still in flight; requests that have not completed by then are only logged.
+     */
+    public void run(Duration warmup, Duration duration, Duration drainTimeout) {
+        var names = new ArrayList<>(operations.keySet());
+        var cumulativeWeights = new int[names.size()];
+        var totalWeight = 0;
+        for (var i = 0; i < names.size(); i++) {
+            totalWeight += weights.get(names.get(i));
+            cumulativeWeights[i] = totalWeight;
+        }
+
+        var intervalNanos = 1_000_000_000L / rate;
+        var start = System.nanoTime();
+        var measuredFrom = start + warmup.toNanos();
+        var end = measuredFrom + duration.toNanos();
+        var random = ThreadLocalRandom.current();
+
+        for (long sequence = 0; ; sequence++) {
+            var scheduledAt = start + sequence * intervalNanos;
+            if (scheduledAt >= end) {
+                break;
+            }
+            var wait = scheduledAt - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            var pick = random.nextInt(totalWeight);
+            var index = 0;
+            while (cumulativeWeights[index] <= pick) {
+                index++;
+            }
+            var name = names.get(index);
+            var measured = scheduledAt >= measuredFrom;
+            send(operations.get(name), measured ? stats.get(name) : null, sequence, scheduledAt);
+        }
+
+        var drainDeadline = System.nanoTime() + drainTimeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            LockSupport.parkNanos(Duration.ofMillis(10).toNanos());
+        }
+        if (inFlight.get() > 0) {
+            System.out.println(inFlight.get() + " requests did not complete within " + drainTimeout);
+        }
+    }
+
+    private void send(Operation operation, LatencyStats latencyStats, long sequence, long scheduledAt) {
+        if (inFlight.get() >= maxInFlight) {
+            // the services have fallen so far behind that the client would become the bottleneck
+            if (latencyStats != null) {
+                latencyStats.recordDropped();
+            }
+            return;
+        }
+        inFlight.incrementAndGet();
+        operation.execute(sequence, latencyStats != null)
+                .then()
+                .subscribe(null,
+                        ex -> {
+                            inFlight.decrementAndGet();
+                            if (latencyStats != null) {
+                                latencyStats.recordError();
+                            }
+                        },
+                        () -> {
+                            inFlight.decrementAndGet();
+                            if (latencyStats != null) {
+                                latencyStats.recordSince(scheduledAt);
+                            }
+                        });
+    }
+}
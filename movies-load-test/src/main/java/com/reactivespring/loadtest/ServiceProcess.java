@@ -0,0 +1,89 @@
+package com.reactivespring.loadtest;
+
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One of the Spring Boot services running in its own JVM, so that the services do not share
+ * heap, GC or event loops with each other or with the load generator.
+ */
+public class ServiceProcess implements AutoCloseable {
+
+    private final String name;
+
+    private final int port;
+
+    private final Process process;
+
+    private ServiceProcess(String name, int port, Process process) {
+        this.name = name;
+        this.port = port;
+        this.process = process;
+    }
+
+    /**
+     * Starts {@code mainClass} on a free port with {@code args} as Spring Boot command line
+     * arguments, and logs its output to {@code <logDir>/<name>.log}.
+     */
+    public static ServiceProcess start(String name, String classpath, String mainClass, String jvmArgs,
+                                       Path logDir, List<String> args) throws IOException {
+        var port = freePort();
+        var command = new ArrayList<String>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (!jvmArgs.isBlank()) {
+            command.addAll(List.of(jvmArgs.trim().split("\\s+")));
+        }
+        command.addAll(List.of("-cp", classpath, mainClass, "--server.port=" + port));
+        command.addAll(args);
+        var process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logDir.resolve(name + ".log").toFile())
+                .start();
+        return new ServiceProcess(name, port, process);
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    /**
+     * Waits until the actuator health endpoint of the service reports UP.
+     */
+    public void awaitStarted(WebClient webClient, Duration timeout) {
+        webClient.get()
+                .uri(baseUrl() + "/actuator/health")
+                .retrieve()
+                .toBodilessEntity()
+                .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, Duration.ofMillis(250))
+                        .filter(ex -> process.isAlive()))
+                .then(Mono.fromRunnable(() -> System.out.println(name + " started on " + baseUrl())))
+                .timeout(timeout)
+                .onErrorMap(ex -> new IllegalStateException(name + " did not start, see " + name + ".log", ex))
+                .block();
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Override
+    public void close() {
+        process.destroy();
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.reactivespring.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Long-lived subscribers of the movies-service stream endpoints, measuring how long a movie
+ * info written to movies-info-service takes to reach them.
+ */
+public class StreamSubscribers implements AutoCloseable {
+
+    private static final Map<String, String> VARIANTS = Map.of(
+            "streamDelivery", "",
+            "rawStreamDelivery", "?raw=true",
+            "enrichedStreamDelivery", "?enriched=true");
+
+    private final Map<String, Long> sentAt = new ConcurrentHashMap<>();
+
+    private final Map<String, LatencyStats> stats = new ConcurrentHashMap<>();
+
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    /**
+     * Subscribes {@code subscribers} clients, spread over the decoded, raw and enriched variants.
+     */
+    public StreamSubscribers(WebClient webClient, String moviesStreamUrl, int subscribers) {
+        var variants = new ArrayList<>(VARIANTS.keySet());
+        variants.sort(null);
+        for (var i = 0; i < subscribers; i++) {
+            var variant = variants.get(i % variants.size());
+            var latencyStats = stats.computeIfAbsent(variant, LatencyStats::new);
+            subscriptions.add(webClient.get()
+                    .uri(moviesStreamUrl + VARIANTS.get(variant))
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .retrieve()
+                    .bodyToFlux(JsonNode.class)
+                    .subscribe(event -> received(event, latencyStats),
+                            ex -> System.out.println(variant + " subscriber failed: " + ex)));
+        }
+    }
+
+    /**
+     * Marks a movie info as written; its arrival on the streams is measured from {@code startNanos}.
+     */
+    public void sent(String name, long startNanos) {
+        sentAt.put(name, startNanos);
+    }
+
+    private void received(JsonNode event, LatencyStats latencyStats) {
+        // the enriched stream wraps the movie info into a movie
+        var movieInfo = event.has("movieInfo") ? event.path("movieInfo") : event;
+        var name = movieInfo.path("name").asText();
+        var start = sentAt.get(name);
+        if (start != null) {
+            latencyStats.recordSince(start);
+        }
+    }
+
+    public List<LatencyStats> stats() {
+        var result = new ArrayList<>(stats.values());
+        result.sort((a, b) -> a.name().compareTo(b.name()));
+        return result;
+    }
+
+    @Override
+    public void close() {
+        subscriptions.dispose();
+    }
+}
@@ -0,0 +1,55 @@
+package com.reactivespring.deadline;
+
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+
+public class DeadlineQueries {
+
+    /**
+     * Bounds the query by the remaining budget of the request, so the database stops working
+     * on it too once the caller has given up.
+     */
+    public static Query withinDeadline(Query query, ContextView contextView) {
+        Deadline.from(contextView)
+                //maxTimeMS of 0 would mean no limit at all
+                .ifPresent(deadline -> query.maxTimeMsec(Math.max(1, deadline.remaining().toMillis())));
+        return query;
+    }
+
+    public static <T> TypedAggregation<T> withinDeadline(TypedAggregation<T> aggregation, ContextView contextView) {
+        return Deadline.from(contextView)
+                .map(deadline -> aggregation.withOptions(withMaxTime(aggregation.getOptions(),
+                        Duration.ofMillis(Math.max(1, deadline.remaining().toMillis())))))
+                .orElse(aggregation);
+    }
+
+    //withOptions replaces the options as a whole, so every option already set is carried over
+    private static AggregationOptions withMaxTime(AggregationOptions options, Duration maxTime) {
+        var builder = AggregationOptions.builder()
+                .allowDiskUse(options.isAllowDiskUse())
+                .explain(options.isExplain())
+                .maxTime(maxTime);
+        options.getCursor().ifPresent(builder::cursor);
+        options.getCollation().ifPresent(builder::collation);
+        options.getComment().ifPresent(builder::comment);
+        options.getHint().ifPresent(builder::hint);
+        if (options.isSkipResults()) {
+            builder.skipOutput();
+        }
+        switch (options.getDomainTypeMapping()) {
+            case STRICT:
+                builder.strictMapping();
+                break;
+            case NONE:
+                builder.noMapping();
+                break;
+            default:
+                builder.relaxedMapping();
+        }
+        return builder.build();
+    }
+}
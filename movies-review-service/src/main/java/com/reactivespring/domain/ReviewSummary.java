@@ -0,0 +1,20 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSummary {
+
+    private Long movieInfoId;
+    private long count;
+    //null when none of the reviews has a rating
+    private Double averageRating;
+    //number of ratings per whole rating point, e.g. 8 counts the ratings from 8.0 up to 9.0
+    private Map<Integer, Long> ratingHistogram;
+}
@@ -0,0 +1,8 @@
+package com.reactivespring.exception;
+
+public class ReviewVersionMismatchException extends RuntimeException {
+
+    public ReviewVersionMismatchException(String message) {
+        super(message);
+    }
+}
@@ -2,9 +2,12 @@ package com.reactivespring.exceptionhandler;
 
 import com.reactivespring.exception.ReviewDataException;
 import com.reactivespring.exception.ReviewNotFoundException;
+import com.reactivespring.exception.ReviewVersionMismatchException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.web.reactive.error.ErrorWebExceptionHandler;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
@@ -28,6 +31,16 @@ public class GlobalErrorHandler implements ErrorWebExceptionHandler {
             exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
             return exchange.getResponse().writeWith(Mono.just(wrap));
         }
+        if (ex instanceof ReviewVersionMismatchException) {
+            exchange.getResponse().setStatusCode(HttpStatus.PRECONDITION_FAILED);
+            return exchange.getResponse().writeWith(Mono.just(wrap));
+        }
+        if (ex instanceof DuplicateKeyException || ex instanceof OptimisticLockingFailureException) {
+            exchange.getResponse().setStatusCode(HttpStatus.CONFLICT);
+            var message = ex instanceof DuplicateKeyException ? "Review already exists" : "Review was changed concurrently";
+            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory()
+                    .wrap(message.getBytes())));
+        }
 
         exchange.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
         return exchange.getResponse().writeWith(Mono.just(wrap));
@@ -3,8 +3,13 @@ package com.reactivespring.handler;
 import com.reactivespring.domain.Review;
 import com.reactivespring.exception.ReviewDataException;
 import com.reactivespring.exception.ReviewNotFoundException;
+import com.reactivespring.exception.ReviewVersionMismatchException;
+import com.reactivespring.pagination.CursorPage;
+import com.reactivespring.pagination.PageCursor;
+import com.reactivespring.pagination.Pagination;
 import com.reactivespring.repository.ReviewReactiveRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
@@ -15,6 +20,9 @@ import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 
 import javax.validation.Validator;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 
@@ -26,11 +34,14 @@ public class ReviewHandler {
 
     private Validator validator;
 
+    private Pagination pagination;
+
     private Sinks.Many<Review> reviewSink = Sinks.many().replay().latest();
 
-    public ReviewHandler(ReviewReactiveRepository reviewReactiveRepository, Validator validator) {
+    public ReviewHandler(ReviewReactiveRepository reviewReactiveRepository, Validator validator, Pagination pagination) {
         this.reviewReactiveRepository = reviewReactiveRepository;
         this.validator = validator;
+        this.pagination = pagination;
     }
 
     public Mono<ServerResponse> addReview(ServerRequest request) {
@@ -61,35 +72,147 @@ public class ReviewHandler {
     public Mono<ServerResponse> getReview(ServerRequest request) {
 
         var movieInfoId = request.queryParam("movieInfoId");
+        var movieInfoIds = request.queryParam("movieInfoIds");
 
         Flux<Review> reviews;
-        if (movieInfoId.isPresent()) {
-            reviews = reviewReactiveRepository.findByMovieInfoId(Long.valueOf(movieInfoId.get()));
-
-        } else {
+        if (movieInfoIds.isPresent()) {
+            //reviews are keyed by numeric ids only, so any other id in the batch simply has none
+            var ids = Arrays.stream(movieInfoIds.get().split(","))
+                    .map(String::trim)
+                    .filter(id -> id.matches("-?[0-9]+"))
+                    .map(this::movieInfoId)
+                    .collect(Collectors.toList());
+            reviews = reviewReactiveRepository.findByMovieInfoIdIn(ids);
+        } else if (movieInfoId.isPresent()) {
+            reviews = reviewReactiveRepository.findByMovieInfoId(movieInfoId(movieInfoId.get()));
+
+        } else if (request.queryParam("unpaged").map(Boolean::valueOf).orElse(false)) {
+            pagination.checkUnpaged();
             reviews = reviewReactiveRepository.findAll();
+        } else {
+            return getReviewPage(request);
         }
         return getResponse(reviews);
     }
 
+    /**
+     * The {@link Pagination#NEXT_PAGE_HEADER} response header holds the token to pass as
+     * {@code next} for the following page, and is absent on the last one.
+     */
+    private Mono<ServerResponse> getReviewPage(ServerRequest request) {
+        var after = pagination.cursor(request.queryParam("next").orElse(null));
+        var limit = pagination.limit(request.queryParam("limit").map(this::requestedLimit).orElse(null));
+
+        return CursorPage.of(reviewReactiveRepository.findPage(after, limit + 1), limit,
+                        review -> PageCursor.after(review.getReviewId()))
+                .flatMap(page -> {
+                    var response = ServerResponse.ok();
+                    if (page.getNext() != null) {
+                        response.header(Pagination.NEXT_PAGE_HEADER, page.getNext());
+                    }
+                    return response.bodyValue(page.getContent());
+                });
+    }
+
+    private Long movieInfoId(String movieInfoId) {
+        try {
+            return Long.valueOf(movieInfoId.trim());
+        } catch (NumberFormatException e) {
+            throw new ReviewDataException("movieInfoId must be a number : " + movieInfoId);
+        }
+    }
+
+    private Integer requestedLimit(String limit) {
+        try {
+            return Integer.valueOf(limit.trim());
+        } catch (NumberFormatException e) {
+            throw new ReviewDataException("limit must be a positive value");
+        }
+    }
+
+    public Mono<ServerResponse> getReviewSummary(ServerRequest request) {
+        var movieInfoId = request.queryParam("movieInfoId")
+                .orElseThrow(() -> new ReviewDataException("movieInfoId must be present"));
+
+        return reviewReactiveRepository.summarizeByMovieInfoId(movieInfoId(movieInfoId))
+                .flatMap(ServerResponse.ok()::bodyValue);
+    }
+
     private Mono<ServerResponse> getResponse(Flux<Review> reviews) {
         return ServerResponse.ok().body(reviews, Review.class);
     }
 
+    /**
+     * Replaces the comment and the rating, in a single round trip.
+     */
     public Mono<ServerResponse> updateReview(ServerRequest request) {
         var reviewId = request.pathVariable("id");
-        var existingReview = reviewReactiveRepository.findById(reviewId)
-                .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found with reviewId "+reviewId)));
 
-        return existingReview
-                .flatMap(review -> request.bodyToMono(Review.class)
-                .map(requestReview -> {
-                    review.setComment(requestReview.getComment());
-                    review.setRating(requestReview.getRating());
-                    return review;
-                }).flatMap(reviewReactiveRepository::save)
-                        .flatMap(savedReview -> ServerResponse.ok().bodyValue(savedReview)));
-               // .switchIfEmpty(ServerResponse.notFound().build()); alternate approach of error handling in case of reviewId not found in db
+        return request.bodyToMono(Review.class)
+                .flatMap(requestReview -> reviewReactiveRepository.update(reviewId, editableProperties(requestReview, true), null))
+                .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found with reviewId "+reviewId)))
+                .flatMap(this::ok);
+    }
+
+    /**
+     * Changes only the comment and/or rating present in the body, in a single round trip. With
+     * If-Match, the change applies only if the review is still at that ETag, and is rejected with
+     * 412 otherwise.
+     */
+    public Mono<ServerResponse> patchReview(ServerRequest request) {
+        var reviewId = request.pathVariable("id");
+        var expectedVersion = expectedVersion(request.headers().firstHeader(HttpHeaders.IF_MATCH));
+
+        return request.bodyToMono(Review.class)
+                .map(changes -> {
+                    var properties = editableProperties(changes, false);
+                    if (properties.isEmpty()) {
+                        throw new ReviewDataException("no property of the review to change");
+                    }
+                    if (properties.containsKey("rating")) {
+                        validator.validateProperty(changes, "rating")
+                                .forEach(violation -> {
+                                    throw new ReviewDataException(violation.getMessage());
+                                });
+                    }
+                    return properties;
+                })
+                .flatMap(properties -> reviewReactiveRepository.update(reviewId, properties, expectedVersion))
+                //only on a miss, to tell a stale version from a missing review
+                .switchIfEmpty(Mono.defer(() -> reviewReactiveRepository.existsById(reviewId)
+                        .flatMap(exists -> Mono.error(exists && expectedVersion != null
+                                ? new ReviewVersionMismatchException("Review " + reviewId + " is no longer at version " + expectedVersion)
+                                : new ReviewNotFoundException("Review not found with reviewId " + reviewId)))))
+                .flatMap(this::ok);
+    }
+
+    private Mono<ServerResponse> ok(Review review) {
+        var response = ServerResponse.ok();
+        if (review.getVersion() != null) {
+            response.eTag(String.valueOf(review.getVersion()));
+        }
+        return response.bodyValue(review);
+    }
+
+    private Map<String, Object> editableProperties(Review review, boolean includeNulls) {
+        var properties = new LinkedHashMap<String, Object>();
+        properties.put("comment", review.getComment());
+        properties.put("rating", review.getRating());
+        if (!includeNulls) {
+            properties.values().removeIf(value -> value == null);
+        }
+        return properties;
+    }
+
+    private Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        try {
+            return Long.valueOf(ifMatch.trim().replaceFirst("^W/", "").replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new ReviewDataException("If-Match must be an ETag of the review");
+        }
     }
 
     public Mono<ServerResponse> deleteReview(ServerRequest request) {
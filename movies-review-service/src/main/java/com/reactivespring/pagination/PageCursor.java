@@ -0,0 +1,95 @@
+package com.reactivespring.pagination;
+
+import org.bson.Document;
+import org.bson.json.JsonParseException;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Position right after the last item of a page, handed to clients as an opaque token. The next
+ * page starts from an index seek on this position, so it costs the same however deep the client
+ * has paged, unlike skip/offset which reads and discards every item before it.
+ */
+public class PageCursor {
+
+    private static final String ID = "_id";
+
+    private static final int OBJECT_ID_TYPE = 7;
+
+    private final Document position;
+
+    private PageCursor(Document position) {
+        this.position = position;
+    }
+
+    /**
+     * {@code id} is kept with the BSON type it is stored with: ids that are valid ObjectIds are
+     * stored as ObjectIds, any other id as a string.
+     */
+    public static PageCursor after(String id) {
+        return new PageCursor(new Document(ID, ObjectId.isValid(id) ? new ObjectId(id) : id));
+    }
+
+    /**
+     * Records the value of a filter the page was read with, so that a token cannot be replayed
+     * against a different filter.
+     */
+    public PageCursor with(String key, Object value) {
+        position.append(key, value);
+        return this;
+    }
+
+    public Object get(String key) {
+        return position.get(key);
+    }
+
+    /**
+     * Whether this cursor was read with exactly the values of {@code filter}, so that a token of
+     * one listing is refused by another rather than paging it from an unrelated position.
+     */
+    public boolean readWith(Map<String, ?> filter) {
+        var recorded = new HashMap<>(position);
+        recorded.remove(ID);
+        return recorded.equals(filter);
+    }
+
+    /**
+     * Selects the ids after this cursor, in the order MongoDB sorts _id: all strings come before
+     * all ObjectIds, and a range on one type never matches the other.
+     */
+    public Criteria idCriteria(String idProperty) {
+        var lastId = position.get(ID);
+        if (lastId instanceof ObjectId) {
+            return where(idProperty).gt(lastId);
+        }
+        return new Criteria().orOperator(where(idProperty).gt(lastId), where(idProperty).type(OBJECT_ID_TYPE));
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(position.toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static PageCursor decode(String token) {
+        try {
+            var position = Document.parse(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+            var lastId = position.get(ID);
+            if (!(lastId instanceof String) && !(lastId instanceof ObjectId)) {
+                throw new IllegalArgumentException("Invalid page token");
+            }
+            return new PageCursor(position);
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+    }
+}
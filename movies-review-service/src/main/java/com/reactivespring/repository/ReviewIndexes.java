@@ -0,0 +1,34 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+
+/**
+ * The movieInfoId index serves the reviews lookup, the batch lookup and the $match stage of the
+ * review summary. It is created before the service takes traffic; recreating it is a no-op.
+ */
+@Component
+@Slf4j
+public class ReviewIndexes {
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReviewIndexes(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        reactiveMongoTemplate.indexOps(Review.class)
+                .ensureIndex(new Index("movieInfoId", Sort.Direction.ASC).named("movieInfoId"))
+                .doOnNext(name -> log.info("Ensured index {} on review", name))
+                .block(Duration.ofSeconds(30));
+    }
+}
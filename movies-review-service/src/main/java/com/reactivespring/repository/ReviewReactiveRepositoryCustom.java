@@ -0,0 +1,37 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import com.reactivespring.pagination.PageCursor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookups on the request path, bounded by the deadline of the request.
+ */
+public interface ReviewReactiveRepositoryCustom {
+
+    Flux<Review> findByMovieInfoId(Long movieInfoId);
+
+    Flux<Review> findByMovieInfoIdIn(List<Long> movieInfoIds);
+
+    /**
+     * Up to {@code limit} reviews after {@code after} (from the first one if null) in id order.
+     */
+    Flux<Review> findPage(PageCursor after, int limit);
+
+    /**
+     * Count, average rating and rating histogram of the reviews of a movie, computed by the database.
+     */
+    Mono<ReviewSummary> summarizeByMovieInfoId(Long movieInfoId);
+
+    /**
+     * Sets {@code properties} and increments the version in one atomic findAndModify, and emits the
+     * updated review. With {@code expectedVersion}, only a review still at that version matches.
+     * Empty if no review matched.
+     */
+    Mono<Review> update(String reviewId, Map<String, Object> properties, Long expectedVersion);
+}
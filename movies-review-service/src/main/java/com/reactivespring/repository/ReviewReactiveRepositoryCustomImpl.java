@@ -0,0 +1,105 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import com.reactivespring.pagination.PageCursor;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.reactivespring.deadline.DeadlineQueries.withinDeadline;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class ReviewReactiveRepositoryCustomImpl implements ReviewReactiveRepositoryCustom {
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReviewReactiveRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Flux<Review> findByMovieInfoId(Long movieInfoId) {
+        return Flux.deferContextual(contextView -> reactiveMongoTemplate.find(
+                withinDeadline(query(where("movieInfoId").is(movieInfoId)), contextView), Review.class));
+    }
+
+    @Override
+    public Flux<Review> findByMovieInfoIdIn(List<Long> movieInfoIds) {
+        return Flux.deferContextual(contextView -> reactiveMongoTemplate.find(
+                withinDeadline(query(where("movieInfoId").in(movieInfoIds)), contextView), Review.class));
+    }
+
+    @Override
+    public Flux<Review> findPage(PageCursor after, int limit) {
+        var query = new Query();
+        if (after != null) {
+            query.addCriteria(after.idCriteria("reviewId"));
+        }
+        query.with(Sort.by("reviewId")).limit(limit);
+        return Flux.deferContextual(contextView -> reactiveMongoTemplate.find(
+                withinDeadline(query, contextView), Review.class));
+    }
+
+    @Override
+    public Mono<Review> update(String reviewId, Map<String, Object> properties, Long expectedVersion) {
+        var query = query(where("reviewId").is(reviewId));
+        if (expectedVersion != null) {
+            query.addCriteria(where("version").is(expectedVersion));
+        }
+        var update = new Update();
+        properties.forEach(update::set);
+        update.inc("version", 1);
+        return Mono.deferContextual(contextView -> reactiveMongoTemplate.findAndModify(
+                withinDeadline(query, contextView), update, FindAndModifyOptions.options().returnNew(true), Review.class));
+    }
+
+    @Override
+    public Mono<ReviewSummary> summarizeByMovieInfoId(Long movieInfoId) {
+        //one document per whole rating point leaves the database, however many reviews there are
+        var aggregation = newAggregation(Review.class,
+                match(where("movieInfoId").is(movieInfoId)),
+                project("rating").and(ArithmeticOperators.Floor.floorValueOf("rating")).as("bucket"),
+                group("bucket").count().as("count").sum("rating").as("ratingSum"));
+
+        return Flux.deferContextual(contextView -> reactiveMongoTemplate.aggregate(
+                        withinDeadline(aggregation, contextView), Document.class))
+                .collectList()
+                .map(buckets -> toSummary(movieInfoId, buckets));
+    }
+
+    private ReviewSummary toSummary(Long movieInfoId, List<Document> buckets) {
+        var histogram = new TreeMap<Integer, Long>();
+        long count = 0;
+        long ratedCount = 0;
+        double ratingSum = 0;
+        for (var bucket : buckets) {
+            var bucketCount = bucket.get("count", Number.class).longValue();
+            count += bucketCount;
+            //reviews without rating are grouped under a null bucket
+            var rating = bucket.get("_id", Number.class);
+            if (rating != null) {
+                histogram.put(rating.intValue(), bucketCount);
+                ratedCount += bucketCount;
+                ratingSum += bucket.get("ratingSum", Number.class).doubleValue();
+            }
+        }
+        var averageRating = ratedCount == 0 ? null : ratingSum / ratedCount;
+        return new ReviewSummary(movieInfoId, count, averageRating, histogram);
+    }
+}
@@ -13,8 +13,10 @@ public class ReviewRouter {
         return RouterFunctions.route()
                 .nest(RequestPredicates.path("/v1/reviews"), builder -> {
                     builder.GET("", request -> reviewHandler.getReview(request))
+                            .GET("/summary", request -> reviewHandler.getReviewSummary(request))
                             .POST("", request -> reviewHandler.addReview(request))
                             .PUT("/{id}", request -> reviewHandler.updateReview(request))
+                            .PATCH("/{id}", request -> reviewHandler.patchReview(request))
                             .DELETE("/{id}", request -> reviewHandler.deleteReview(request))
                             .GET("/stream", request -> reviewHandler.getReviewStream());
 
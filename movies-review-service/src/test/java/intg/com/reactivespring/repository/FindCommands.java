@@ -0,0 +1,66 @@
+package com.reactivespring.repository;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records the find commands sent to MongoDB, so that a test can explain the query a repository
+ * actually sends, with its filter, projection, sort and limit, instead of a copy of it.
+ */
+@TestConfiguration
+public class FindCommands implements CommandListener {
+
+    private static final List<String> QUERY_FIELDS = List.of("find", "filter", "projection", "sort", "limit", "collation");
+
+    private final List<BsonDocument> sent = new CopyOnWriteArrayList<>();
+
+    @Bean
+    MongoClientSettingsBuilderCustomizer findCommandsListener() {
+        return settings -> settings.addCommandListener(this);
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if ("find".equals(event.getCommandName())) {
+            sent.add(event.getCommand().clone());
+        }
+    }
+
+    public void clear() {
+        sent.clear();
+    }
+
+    public BsonDocument last() {
+        if (sent.isEmpty()) {
+            throw new IllegalStateException("no find command was sent");
+        }
+        return sent.get(sent.size() - 1);
+    }
+
+    /**
+     * The winning plan of the last find command sent, planned again without running it.
+     */
+    public Document explainLast(ReactiveMongoTemplate reactiveMongoTemplate) {
+        var command = last();
+        var find = new BsonDocument();
+        QUERY_FIELDS.stream()
+                .filter(command::containsKey)
+                .forEach(field -> find.append(field, command.get(field)));
+        var explain = reactiveMongoTemplate.getMongoDatabase()
+                .flatMap(database -> Mono.from(database.runCommand(new BsonDocument("explain", find)
+                        .append("verbosity", new BsonString("queryPlanner")))))
+                .block();
+        return explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+    }
+}
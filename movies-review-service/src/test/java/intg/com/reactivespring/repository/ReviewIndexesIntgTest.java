@@ -0,0 +1,83 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataMongoTest
+@ActiveProfiles("test")
+@Import({ReviewIndexes.class, FindCommands.class})
+class ReviewIndexesIntgTest {
+
+    @Autowired
+    ReviewReactiveRepository reviewReactiveRepository;
+
+    @Autowired
+    FindCommands findCommands;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        var reviewsList = List.of(
+                new Review(null, 1L, "Awesome Movie", 9.0),
+                new Review(null, 2L, "Excellent Movie", 8.0));
+        reviewReactiveRepository.saveAll(reviewsList)
+                .blockLast();
+        findCommands.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reviewReactiveRepository.deleteAll().block();
+    }
+
+    @Test
+    void findByMovieInfoId_usesIndex() {
+        //when
+        reviewReactiveRepository.findByMovieInfoId(1L).blockLast();
+
+        //then
+        assertIndexScan(findCommands.explainLast(reactiveMongoTemplate));
+    }
+
+    @Test
+    void findByMovieInfoIdIn_usesIndex() {
+        //when
+        reviewReactiveRepository.findByMovieInfoIdIn(List.of(1L, 2L)).blockLast();
+
+        //then
+        assertIndexScan(findCommands.explainLast(reactiveMongoTemplate));
+    }
+
+    private static void assertIndexScan(Document winningPlan) {
+        var stages = new ArrayList<String>();
+        collectStages(winningPlan, stages);
+        assertFalse(stages.contains("COLLSCAN"), "collection scan in " + winningPlan.toJson());
+        assertTrue(stages.contains("IXSCAN"), "no index scan in " + winningPlan.toJson());
+    }
+
+    private static void collectStages(Document plan, List<String> stages) {
+        stages.add(plan.getString("stage"));
+        if (plan.containsKey("inputStage")) {
+            collectStages(plan.get("inputStage", Document.class), stages);
+        }
+        if (plan.containsKey("inputStages")) {
+            plan.getList("inputStages", Document.class).forEach(input -> collectStages(input, stages));
+        }
+    }
+}
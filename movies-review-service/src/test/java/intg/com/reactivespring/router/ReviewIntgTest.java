@@ -1,6 +1,8 @@
 package com.reactivespring.router;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import com.reactivespring.pagination.Pagination;
 import com.reactivespring.repository.ReviewReactiveRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -9,12 +11,16 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.test.StepVerifier;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -78,6 +84,36 @@ class ReviewIntgTest {
 
     }
 
+    @Test
+    void getReviews_pages() {
+
+        var reviewIds = new ArrayList<String>();
+        String next = null;
+        var pages = 0;
+        do {
+            var currentNext = next;
+            var result = webTestClient
+                    .get()
+                    .uri(uriBuilder -> uriBuilder.path(REVIEWS_URL)
+                            .queryParam("limit", 2)
+                            .queryParamIfPresent("next", Optional.ofNullable(currentNext))
+                            .build())
+                    .exchange()
+                    .expectStatus()
+                    .is2xxSuccessful()
+                    .expectBodyList(Review.class)
+                    .returnResult();
+            result.getResponseBody().forEach(review -> reviewIds.add(review.getReviewId()));
+            next = result.getResponseHeaders().getFirst(Pagination.NEXT_PAGE_HEADER);
+            pages++;
+        } while (next != null);
+
+        assertEquals(2, pages);
+        assertEquals(3, reviewIds.stream().distinct().count());
+        //the string id "abc" sorts before the generated ObjectIds
+        assertEquals("abc", reviewIds.get(0));
+    }
+
     @Test
     void getReviews_Stream() {
 
@@ -139,6 +175,56 @@ class ReviewIntgTest {
 
     }
 
+    @Test
+    void getReviewsByMovieInfoIds() {
+        //given
+
+        //when
+        webTestClient
+                .get()
+                .uri(uriBuilder -> {
+                    return uriBuilder.path(REVIEWS_URL)
+                            .queryParam("movieInfoIds", "1,2")
+                            .build();
+                })
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .value(reviewList -> {
+                    assertEquals(3, reviewList.size());
+                });
+
+    }
+
+    @Test
+    void getReviewSummary() {
+        //given
+        reviewReactiveRepository.saveAll(List.of(
+                        new Review(null, 1L, "Good Movie", 7.5),
+                        new Review(null, 1L, "No rating", null)))
+                .blockLast();
+
+        //when
+        webTestClient
+                .get()
+                .uri(uriBuilder -> {
+                    return uriBuilder.path(REVIEWS_URL + "/summary")
+                            .queryParam("movieInfoId", "1")
+                            .build();
+                })
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(ReviewSummary.class)
+                .value(reviewSummary -> {
+                    assertEquals(4, reviewSummary.getCount());
+                    assertEquals(8.5, reviewSummary.getAverageRating());
+                    assertEquals(Map.of(9, 2L, 7, 1L), reviewSummary.getRatingHistogram());
+                });
+
+    }
+
     @Test
     void addReview() {
         //given
@@ -159,6 +245,19 @@ class ReviewIntgTest {
 
     }
 
+    @Test
+    void addReview_existingId() {
+        //given
+        var review = new Review("abc", 1L, "Awesome Movie", 9.0);
+        //when
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(review)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+    }
+
     @Test
     void updateReview() {
         //given
@@ -199,6 +298,40 @@ class ReviewIntgTest {
                 .expectStatus().isNotFound();
     }
 
+    @Test
+    void patchReview() {
+        //given
+        var savedReview = reviewReactiveRepository.save(new Review(null, 1L, "Awesome Movie", 9.0)).block();
+        assert savedReview != null;
+        var eTag = "\"" + savedReview.getVersion() + "\"";
+
+        //when
+        webTestClient
+                .patch()
+                .uri(REVIEWS_URL + "/{id}", savedReview.getReviewId())
+                .header("If-Match", eTag)
+                .bodyValue(Map.of("rating", 7.0))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Review.class)
+                .consumeWith(reviewResponse -> {
+                    var patchedReview = reviewResponse.getResponseBody();
+                    assert patchedReview != null;
+                    assertEquals(7.0, patchedReview.getRating());
+                    assertEquals("Awesome Movie", patchedReview.getComment());
+                    assertEquals(savedReview.getVersion() + 1, patchedReview.getVersion());
+                });
+
+        //then
+        webTestClient
+                .patch()
+                .uri(REVIEWS_URL + "/{id}", savedReview.getReviewId())
+                .header("If-Match", eTag)
+                .bodyValue(Map.of("rating", 6.0))
+                .exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
     @Test
     void deleteReview() {
         //given
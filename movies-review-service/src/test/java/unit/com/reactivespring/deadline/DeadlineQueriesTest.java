@@ -0,0 +1,48 @@
+package com.reactivespring.deadline;
+
+import com.reactivespring.domain.Review;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Collation;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+class DeadlineQueriesTest {
+
+    @Test
+    void withinDeadline_aggregationKeepsItsOptions() {
+        //given
+        var aggregation = newAggregation(Review.class, match(where("movieInfoId").is(1L)))
+                .withOptions(AggregationOptions.builder()
+                        .allowDiskUse(true)
+                        .collation(Collation.of("en").strength(2))
+                        .build());
+        var context = Deadline.after(Duration.ofSeconds(5)).storeIn(Context.empty());
+
+        //when
+        var options = DeadlineQueries.withinDeadline(aggregation, context).getOptions();
+
+        //then
+        assertTrue(options.isAllowDiskUse());
+        assertEquals("en", options.getCollation().orElseThrow().toDocument().getString("locale"));
+        assertTrue(options.hasExecutionTimeLimit());
+        assertTrue(options.getMaxTime().toMillis() > 0);
+    }
+
+    @Test
+    void withinDeadline_aggregationWithoutDeadline() {
+        //given
+        var aggregation = newAggregation(Review.class, match(where("movieInfoId").is(1L)));
+
+        //then
+        assertSame(aggregation, DeadlineQueries.withinDeadline(aggregation, Context.empty()));
+    }
+}
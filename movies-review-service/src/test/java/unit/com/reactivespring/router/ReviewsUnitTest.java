@@ -1,8 +1,10 @@
 package com.reactivespring.router;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exceptionhandler.GlobalErrorHandler;
 import com.reactivespring.handler.ReviewHandler;
+import com.reactivespring.pagination.Pagination;
 import com.reactivespring.repository.ReviewReactiveRepository;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
@@ -11,21 +13,26 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest
-@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class})
+@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class, Pagination.class})
 @AutoConfigureWebTestClient
 class ReviewsUnitTest {
 
@@ -62,27 +69,144 @@ class ReviewsUnitTest {
                 });
     }
 
+    @Test
+    void addReview_existingId() {
+
+        //given
+        var review = new Review("abc", 1L, "Awesome Movie", 9.0);
+
+        //when
+        when(reviewReactiveRepository.save(isA(Review.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key error collection: local.review index: _id_ dup key: { _id: \"abc\" }")));
+
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(review)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT)
+                .expectBody(String.class)
+                .isEqualTo("Review already exists");
+    }
+
     @Test
     void getAllReviews() {
 
+        var reviewList = List.of(
+                new Review("abc", 1L, "Awesome Movie", 9.0),
+                new Review("def", 1L, "Awesome Movie1", 9.0),
+                new Review("ghi", 2L, "Excellent Movie", 8.0));
+
+        when(reviewReactiveRepository.findPage(isNull(), eq(3))).thenReturn(Flux.fromIterable(reviewList));
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?limit=2")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .exists(Pagination.NEXT_PAGE_HEADER)
+                .expectBodyList(Review.class)
+                .value(reviews -> {
+                    assertEquals(2, reviews.size());
+                });
+
+    }
+
+    @Test
+    void getAllReviews_unpagedDisabled() {
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?unpaged=true")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getAllReviews_nonNumericLimit() {
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?limit=abc")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("limit must be a positive value");
+    }
+
+    @Test
+    void getReviewsByMovieInfoIds() {
+
         var reviewList = List.of(
                 new Review(null, 1L, "Awesome Movie", 9.0),
-                new Review(null, 1L, "Awesome Movie1", 9.0),
                 new Review(null, 2L, "Excellent Movie", 8.0));
 
-        when(reviewReactiveRepository.findAll()).thenReturn(Flux.fromIterable(reviewList));
+        when(reviewReactiveRepository.findByMovieInfoIdIn(List.of(1L, 2L))).thenReturn(Flux.fromIterable(reviewList));
 
         webTestClient
                 .get()
-                .uri(REVIEWS_URL)
+                .uri(REVIEWS_URL + "?movieInfoIds=1,2")
                 .exchange()
                 .expectStatus()
                 .is2xxSuccessful()
                 .expectBodyList(Review.class)
                 .value(reviews -> {
-                    assertEquals(3, reviews.size());
+                    assertEquals(2, reviews.size());
                 });
+    }
+
+    @Test
+    void getReviewsByMovieInfoIds_nonNumericId() {
+
+        var reviewList = List.of(
+                new Review(null, 1L, "Awesome Movie", 9.0),
+                new Review(null, 3L, "Excellent Movie", 8.0));
 
+        when(reviewReactiveRepository.findByMovieInfoIdIn(List.of(1L, 3L))).thenReturn(Flux.fromIterable(reviewList));
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoIds=1,abc,3")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .value(reviews -> {
+                    assertEquals(2, reviews.size());
+                });
+    }
+
+    @Test
+    void getReviewSummary() {
+
+        var reviewSummary = new ReviewSummary(1L, 2L, 8.5, Map.of(9, 1L, 8, 1L));
+
+        when(reviewReactiveRepository.summarizeByMovieInfoId(1L)).thenReturn(Mono.just(reviewSummary));
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(ReviewSummary.class)
+                .isEqualTo(reviewSummary);
+    }
+
+    @Test
+    void getReviewSummary_missingMovieInfoId() {
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
     }
 
     @Test
@@ -90,8 +214,8 @@ class ReviewsUnitTest {
 
         var reviewUpdate = new Review(null, 1L, "Not an Awesome Movie", 8.0);
 
-        when(reviewReactiveRepository.save(isA(Review.class))).thenReturn(Mono.just(new Review("abc", 1L, "Not an Awesome Movie", 8.0)));
-        when(reviewReactiveRepository.findById((String) any())).thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
+        when(reviewReactiveRepository.update(eq("abc"), any(), isNull()))
+                .thenReturn(Mono.just(new Review("abc", 1L, "Not an Awesome Movie", 8.0, 1L)));
         //when
 
 
@@ -101,6 +225,7 @@ class ReviewsUnitTest {
                 .bodyValue(reviewUpdate)
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"1\"")
                 .expectBody(Review.class)
                 .consumeWith(reviewResponse ->{
                     var updatedReview = reviewResponse.getResponseBody();
@@ -110,6 +235,60 @@ class ReviewsUnitTest {
                 });
     }
 
+    @Test
+    void patchReview() {
+        //given
+        var changes = new Review(null, null, null, 7.5);
+        when(reviewReactiveRepository.update("abc", Map.of("rating", 7.5), 3L))
+                .thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 7.5, 4L)));
+
+        //when
+        webTestClient
+                .patch()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .header("If-Match", "\"3\"")
+                .bodyValue(changes)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"4\"")
+                .expectBody(Review.class)
+                .consumeWith(reviewResponse -> {
+                    var patchedReview = reviewResponse.getResponseBody();
+                    assert patchedReview != null;
+                    assertEquals(7.5, patchedReview.getRating());
+                    assertEquals("Awesome Movie", patchedReview.getComment());
+                });
+    }
+
+    @Test
+    void patchReview_invalidChange() {
+        //when
+        webTestClient
+                .patch()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .bodyValue(new Review(null, null, null, -1.0))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("rating.negative : please pass a non-negative value");
+    }
+
+    @Test
+    void patchReview_versionMismatch() {
+        //given
+        when(reviewReactiveRepository.update(eq("abc"), any(), eq(3L))).thenReturn(Mono.empty());
+        when(reviewReactiveRepository.existsById("abc")).thenReturn(Mono.just(true));
+
+        //when
+        webTestClient
+                .patch()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .header("If-Match", "\"3\"")
+                .bodyValue(new Review(null, null, "Not an Awesome Movie", null))
+                .exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
     @Test
     void deleteReview() {
         //given
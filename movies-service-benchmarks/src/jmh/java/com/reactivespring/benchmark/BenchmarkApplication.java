@@ -0,0 +1,26 @@
+package com.reactivespring.benchmark;
+
+import com.reactivespring.MoviesServiceApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+public class BenchmarkApplication {
+
+    /**
+     * Starts movies-service against the stub, without its own HTTP server: the benchmarks call
+     * the controller and the clients directly. The near-cache is off so that every operation
+     * goes through the upstream clients.
+     */
+    public static ConfigurableApplicationContext start(UpstreamStub upstreamStub) {
+        return new SpringApplicationBuilder(MoviesServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                //as arguments, because application.yml takes precedence over default properties
+                .run("--restClient.moviesInfoUrl=" + upstreamStub.baseUrl() + "/v1/movieinfos",
+                        "--restClient.reviewsUrl=" + upstreamStub.baseUrl() + "/v1/reviews",
+                        "--movieInfoCache.enabled=false",
+                        "--movieCache.enabled=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=warn");
+    }
+}
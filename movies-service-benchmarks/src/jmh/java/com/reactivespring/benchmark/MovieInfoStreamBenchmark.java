@@ -0,0 +1,72 @@
+package com.reactivespring.benchmark;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.controller.MoviesController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One operation reads a whole movie info stream of {@code streamEvents} events, through the
+ * stream endpoint, decoded by the client, and relayed raw without decoding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MovieInfoStreamBenchmark {
+
+    @Param({"1000"})
+    public int streamEvents;
+
+    private UpstreamStub upstreamStub;
+
+    private ConfigurableApplicationContext context;
+
+    private MoviesController moviesController;
+
+    private MoviesInfoRestClient moviesInfoRestClient;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        upstreamStub = new UpstreamStub(Duration.ZERO, 0, streamEvents);
+        context = BenchmarkApplication.start(upstreamStub);
+        moviesController = context.getBean(MoviesController.class);
+        moviesInfoRestClient = context.getBean(MoviesInfoRestClient.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        upstreamStub.close();
+    }
+
+    @Benchmark
+    public Long streamEndpoint() {
+        return moviesController.retrieveMovieByStream().count().block();
+    }
+
+    @Benchmark
+    public Long decodedStream() {
+        return moviesInfoRestClient.retreiveMovieInfoStream().count().block();
+    }
+
+    @Benchmark
+    public Long rawStream() {
+        return moviesInfoRestClient.retreiveRawMovieInfoStream()
+                .doOnNext(DataBufferUtils::release)
+                .count()
+                .block();
+    }
+}
@@ -0,0 +1,83 @@
+package com.reactivespring.benchmark;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.client.ReviewsRestClient;
+import com.reactivespring.controller.MoviesController;
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The request path of a single movie: the composed movie, and each upstream client on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MoviesServiceBenchmark {
+
+    @Param({"0", "5"})
+    public long upstreamLatencyMillis;
+
+    @Param({"10", "1000"})
+    public int reviewCount;
+
+    private UpstreamStub upstreamStub;
+
+    private ConfigurableApplicationContext context;
+
+    private MoviesController moviesController;
+
+    private MoviesInfoRestClient moviesInfoRestClient;
+
+    private ReviewsRestClient reviewsRestClient;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        upstreamStub = new UpstreamStub(Duration.ofMillis(upstreamLatencyMillis), reviewCount, 0);
+        context = BenchmarkApplication.start(upstreamStub);
+        moviesController = context.getBean(MoviesController.class);
+        moviesInfoRestClient = context.getBean(MoviesInfoRestClient.class);
+        reviewsRestClient = context.getBean(ReviewsRestClient.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        upstreamStub.close();
+    }
+
+    @Benchmark
+    public Movie retrieveMovieById() {
+        return moviesController.retrieveMovieById("1").block().getBody();
+    }
+
+    @Benchmark
+    public Movie retrieveMovieSummaryById() {
+        return moviesController.retrieveMovieSummaryById("1").block().getBody();
+    }
+
+    @Benchmark
+    public MovieInfo retreiveMovieInfo() {
+        return moviesInfoRestClient.retreiveMovieInfo("1").block();
+    }
+
+    @Benchmark
+    public List<Review> retrieveReviews() {
+        return reviewsRestClient.retrieveReviews("1").collectList().block();
+    }
+}
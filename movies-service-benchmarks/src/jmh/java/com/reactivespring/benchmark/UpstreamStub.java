@@ -0,0 +1,101 @@
+package com.reactivespring.benchmark;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * In-process stand-in for movies-info-service and movies-review-service, serving canned
+ * payloads after a fixed latency, so that the benchmarks only measure movies-service.
+ */
+public class UpstreamStub implements AutoCloseable {
+
+    private final Duration latency;
+
+    private final byte[] movieInfo;
+
+    private final byte[] reviews;
+
+    private final byte[] reviewSummary;
+
+    private final byte[] movieInfoLine;
+
+    private final int streamEvents;
+
+    private final DisposableServer server;
+
+    /**
+     * @param latency      delay before every non-streaming response
+     * @param reviewCount  number of reviews per movie, which drives the payload size
+     * @param streamEvents number of events on the movie info stream before it completes
+     */
+    public UpstreamStub(Duration latency, int reviewCount, int streamEvents) {
+        this.latency = latency;
+        this.streamEvents = streamEvents;
+        var movieInfoJson = "{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005,"
+                + "\"cast\":[\"Christian Bale\",\"Michael Cane\"],\"release_date\":\"2005-06-15\"}";
+        this.movieInfo = bytes(movieInfoJson);
+        this.movieInfoLine = bytes(movieInfoJson + "\n");
+        this.reviews = bytes(IntStream.range(0, reviewCount)
+                .mapToObj(i -> "{\"reviewId\":\"" + i + "\",\"movieInfoId\":1,\"comment\":\"Awesome Movie " + i
+                        + "\",\"rating\":" + (i % 10) + ".0}")
+                .collect(Collectors.joining(",", "[", "]")));
+        this.reviewSummary = bytes("{\"movieInfoId\":1,\"count\":" + reviewCount
+                + ",\"averageRating\":4.5,\"ratingHistogram\":{\"0\":1,\"9\":1}}");
+        this.server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .handle(this::handle)
+                .bindNow();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        var path = new QueryStringDecoder(request.uri()).path();
+        switch (path) {
+            case "/v1/movieinfos/stream":
+                return response.header(HttpHeaderNames.CONTENT_TYPE, "application/x-ndjson")
+                        .sendByteArray(Flux.range(0, streamEvents).map(i -> movieInfoLine))
+                        .then();
+            case "/v1/reviews":
+                return delayed(response, reviews);
+            case "/v1/reviews/summary":
+                return delayed(response, reviewSummary);
+            default:
+                if (path.startsWith("/v1/movieinfos/")) {
+                    return delayed(response, movieInfo);
+                }
+                return response.status(HttpResponseStatus.NOT_FOUND).send();
+        }
+    }
+
+    private Mono<Void> delayed(HttpServerResponse response, byte[] body) {
+        var send = response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                .sendByteArray(Mono.just(body))
+                .then();
+        return latency.isZero() ? send : Mono.delay(latency).then(send);
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+}
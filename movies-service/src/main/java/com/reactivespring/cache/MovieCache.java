@@ -0,0 +1,181 @@
+package com.reactivespring.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.reactivespring.domain.Movie;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.ReviewsClientException;
+import com.reactivespring.util.SingleFlight;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Composed movies, served stale-while-revalidate: a movie is fresh for the ttl, and for the
+ * staleWhileRevalidate window after that it is still served right away while a single
+ * background call composes it again. Past that window a request waits for the upstreams, but
+ * if they fail the stale movie is served for up to staleIfError after the ttl.
+ * Degraded movies are never cached, they are retried on the next request.
+ * Only movie info changes arrive as events, a review change is not seen until the movie is
+ * composed again: while the upstreams are healthy, the reviews served are at most
+ * ttl + staleWhileRevalidate old.
+ */
+@Component
+@Slf4j
+public class MovieCache {
+
+    private static final String SUMMARY = "?reviews=summary";
+
+    private boolean enabled;
+
+    private long ttlNanos;
+
+    private long staleWhileRevalidateNanos;
+
+    private long staleIfErrorNanos;
+
+    private Ticker ticker;
+
+    private Cache<String, Entry> cache;
+
+    private SingleFlight<String, Movie> singleFlight;
+
+    private Set<String> revalidating = ConcurrentHashMap.newKeySet();
+
+    private Counter servedWhileRevalidating;
+
+    private Counter servedOnError;
+
+    @Autowired
+    public MovieCache(@Value("${movieCache.enabled:true}") boolean enabled,
+                      @Value("${movieCache.maximumSize:10000}") long maximumSize,
+                      @Value("${movieCache.ttl:30s}") Duration ttl,
+                      @Value("${movieCache.staleWhileRevalidate:30s}") Duration staleWhileRevalidate,
+                      @Value("${movieCache.staleIfError:1h}") Duration staleIfError,
+                      MeterRegistry meterRegistry) {
+        this(enabled, maximumSize, ttl, staleWhileRevalidate, staleIfError, meterRegistry, Ticker.systemTicker());
+    }
+
+    MovieCache(boolean enabled, long maximumSize, Duration ttl, Duration staleWhileRevalidate, Duration staleIfError,
+               MeterRegistry meterRegistry, Ticker ticker) {
+        this.enabled = enabled;
+        this.ttlNanos = ttl.toNanos();
+        this.staleWhileRevalidateNanos = staleWhileRevalidate.toNanos();
+        this.staleIfErrorNanos = staleIfError.toNanos();
+        this.ticker = ticker;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl.plus(staleWhileRevalidate.compareTo(staleIfError) > 0 ? staleWhileRevalidate : staleIfError))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "movie");
+        this.singleFlight = new SingleFlight<>("movie-composition", meterRegistry);
+        this.servedWhileRevalidating = Counter.builder("movie.cache.stale")
+                .description("Stale movies served")
+                .tag("reason", "revalidating")
+                .register(meterRegistry);
+        this.servedOnError = Counter.builder("movie.cache.stale")
+                .description("Stale movies served")
+                .tag("reason", "error")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Mono<Movie> movie(String movieId, Supplier<Mono<Movie>> compose) {
+        return get(movieId, compose);
+    }
+
+    public Mono<Movie> movieSummary(String movieId, Supplier<Mono<Movie>> compose) {
+        return get(movieId + SUMMARY, compose);
+    }
+
+    /**
+     * Drops the movie when its movie info changed, as it is known to be outdated.
+     */
+    public void invalidate(String movieId) {
+        cache.invalidateAll(List.of(movieId, movieId + SUMMARY));
+    }
+
+    private Mono<Movie> get(String key, Supplier<Mono<Movie>> compose) {
+        if (!enabled) {
+            return Mono.defer(compose);
+        }
+        return Mono.defer(() -> {
+            var entry = cache.getIfPresent(key);
+            if (entry == null) {
+                return load(key, compose);
+            }
+            var age = ticker.read() - entry.storedAtNanos;
+            if (age < ttlNanos) {
+                return Mono.just(entry.movie);
+            }
+            if (age < ttlNanos + staleWhileRevalidateNanos) {
+                revalidate(key, compose);
+                servedWhileRevalidating.increment();
+                return Mono.just(entry.movie);
+            }
+            return load(key, compose)
+                    .onErrorResume(ex -> age < ttlNanos + staleIfErrorNanos && isUpstreamFailure(ex), ex -> {
+                        log.warn("Serving stale movie {} : {}", key, ex.toString());
+                        servedOnError.increment();
+                        return Mono.just(entry.movie);
+                    });
+        });
+    }
+
+    private Mono<Movie> load(String key, Supplier<Mono<Movie>> compose) {
+        return singleFlight.execute(key, () -> compose.get()
+                .doOnNext(movie -> {
+                    if (!movie.isReviewsDegraded()) {
+                        cache.put(key, new Entry(movie, ticker.read()));
+                    }
+                }));
+    }
+
+    /**
+     * The refresh is subscribed on its own, so it neither delays nor is cancelled with the
+     * request that found the movie stale, and it does not inherit that request's deadline.
+     */
+    private void revalidate(String key, Supplier<Mono<Movie>> compose) {
+        if (!revalidating.add(key)) {
+            return;
+        }
+        load(key, compose)
+                .doFinally(signalType -> revalidating.remove(key))
+                .subscribe(movie -> { },
+                        ex -> log.warn("Revalidating movie {} failed : {}", key, ex.toString()));
+    }
+
+    private boolean isUpstreamFailure(Throwable ex) {
+        //a 4xx (e.g. the movie was deleted) is an answer, not an outage
+        return !(ex instanceof MoviesInfoClientException) && !(ex instanceof ReviewsClientException);
+    }
+
+    private static class Entry {
+
+        private final Movie movie;
+
+        private final long storedAtNanos;
+
+        Entry(Movie movie, long storedAtNanos) {
+            this.movie = movie;
+            this.storedAtNanos = storedAtNanos;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.reactivespring.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+public class MovieInfoCache {
+
+    private boolean enabled;
+
+    private Cache<String, MovieInfo> cache;
+
+    public MovieInfoCache(@Value("${movieInfoCache.enabled:true}") boolean enabled,
+                          @Value("${movieInfoCache.maximumSize:10000}") long maximumSize,
+                          @Value("${movieInfoCache.ttl:10m}") Duration ttl,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        //size based eviction is W-TinyLFU, the ttl bounds staleness if an update event is missed
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "movieInfo");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public MovieInfo get(String movieInfoId) {
+        return enabled ? cache.getIfPresent(movieInfoId) : null;
+    }
+
+    /**
+     * A fetch and an update event for the same movie info can finish in any order, so the
+     * entry is only replaced by a movie info that is not older than it.
+     */
+    public void put(MovieInfo movieInfo) {
+        if (enabled && movieInfo.getMovieInfoId() != null) {
+            cache.asMap().merge(movieInfo.getMovieInfoId(), movieInfo,
+                    (cached, candidate) -> isOlder(candidate, cached) ? cached : candidate);
+        }
+    }
+
+    private boolean isOlder(MovieInfo candidate, MovieInfo cached) {
+        return candidate.getVersion() != null && cached.getVersion() != null
+                && candidate.getVersion() < cached.getVersion();
+    }
+
+    public void invalidate(String movieInfoId) {
+        cache.invalidate(movieInfoId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,64 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.stream.MovieInfoStreamHub;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+@Component
+@Slf4j
+public class MovieInfoCacheRefresher {
+
+    private MovieInfoStreamHub movieInfoStreamHub;
+
+    private MovieInfoCache movieInfoCache;
+
+    private MovieCache movieCache;
+
+    private Disposable subscription;
+
+    public MovieInfoCacheRefresher(MovieInfoStreamHub movieInfoStreamHub, MovieInfoCache movieInfoCache,
+                                   MovieCache movieCache) {
+        this.movieInfoStreamHub = movieInfoStreamHub;
+        this.movieInfoCache = movieInfoCache;
+        this.movieCache = movieCache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!movieInfoCache.isEnabled() && !movieCache.isEnabled()) {
+            return;
+        }
+
+        //the client drops the cached movie infos whenever the upstream stream connects, which also
+        //happens behind the hub without this subscription being resubscribed
+        subscription = movieInfoStreamHub.stream()
+                .doOnError(ex -> log.warn("MovieInfo stream failed, cache refresh will be retried : {}", ex.getMessage()))
+                .repeatWhen(completed -> completed.delayElements(Duration.ofSeconds(1)))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .transientErrors(true))
+                //composed movies are not dropped on resubscribe, they are what is served while the upstream is down
+                .subscribe(movieInfo -> {
+                    if (movieInfo.isTombstone()) {
+                        movieInfoCache.invalidate(movieInfo.getMovieInfoId());
+                    } else {
+                        movieInfoCache.put(movieInfo);
+                    }
+                    movieCache.invalidate(movieInfo.getMovieInfoId());
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+}
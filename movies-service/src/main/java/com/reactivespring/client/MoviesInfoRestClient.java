@@ -1,33 +1,68 @@
 package com.reactivespring.client;
 
+import com.reactivespring.cache.MovieInfoCache;
+import com.reactivespring.deadline.Deadline;
 import com.reactivespring.domain.MovieInfo;
 import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
-import com.reactivespring.util.RetryUtil;
+import com.reactivespring.metrics.UpstreamMetricsFilterFunction;
+import com.reactivespring.resilience.UpstreamGuard;
+import com.reactivespring.util.NdjsonSplitter;
+import com.reactivespring.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.function.Function;
+
 @Component
 @Slf4j
 public class MoviesInfoRestClient {
 
     private WebClient webClient;
 
+    private SingleFlight<String, MovieInfo> singleFlight;
+
+    private MovieInfoCache movieInfoCache;
+
+    private UpstreamGuard upstreamGuard;
+
     @Value("${restClient.moviesInfoUrl}")
-    private String moviesInfoUrl;
+    private List<String> moviesInfoUrls;
 
-    public MoviesInfoRestClient(WebClient webClient) {
+    public MoviesInfoRestClient(@Qualifier("moviesInfo") WebClient webClient, MovieInfoCache movieInfoCache,
+                                @Qualifier("moviesInfo") UpstreamGuard upstreamGuard, MeterRegistry meterRegistry) {
         this.webClient = webClient;
+        this.movieInfoCache = movieInfoCache;
+        this.upstreamGuard = upstreamGuard;
+        this.singleFlight = new SingleFlight<>("movies-info", meterRegistry);
     }
 
     public Mono<MovieInfo> retreiveMovieInfo(String movieId) {
+        return Mono.defer(() -> {
+            var cachedMovieInfo = movieInfoCache.get(movieId);
+            if (cachedMovieInfo != null) {
+                return Mono.just(cachedMovieInfo);
+            }
+            return singleFlight.execute(movieId, () -> fetchMovieInfo(movieId))
+                    .doOnNext(movieInfoCache::put);
+        });
+    }
+
+    private Mono<MovieInfo> fetchMovieInfo(String movieId) {
 
-        var url = moviesInfoUrl.concat("/{id}");
+        var url = moviesInfoUrl().concat("/{id}");
 
         /**var retrySpec = Retry.fixedDelay(3, Duration.ofSeconds(1))
                 .filter(throwable -> throwable instanceof  MoviesInfoServerException)
@@ -36,48 +71,91 @@ public class MoviesInfoRestClient {
        return webClient
                 .get()
                 .uri(url, movieId)
+                .attribute(UpstreamMetricsFilterFunction.OPERATION, "movieInfoById")
                 .retrieve()
-               .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
-                   log.info("Status code is: {}", clientResponse.statusCode().value());
-                   if(clientResponse.statusCode().equals(HttpStatus.NOT_FOUND)) {
-                       return Mono.error(new MoviesInfoClientException("Movie with movieInfoId "+movieId+ " doesn't exists.", clientResponse.statusCode().value()));
-                   }
-
-                   return  clientResponse.bodyToMono(String.class)
-                           .flatMap(responseMessage -> Mono.error(new MoviesInfoClientException(responseMessage, clientResponse.statusCode().value())));
-               })
-               .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
-                   log.info("Status code is : {}", clientResponse.statusCode().value());
-                   return clientResponse.bodyToMono(String.class)
-                           .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException("Server exception in MoviesInfoService "+responseMessage)));
-               })
+               .onStatus(status -> status == HttpStatus.NOT_FOUND, clientResponse -> Mono.error(
+                       new MoviesInfoClientException("Movie with movieInfoId "+movieId+ " doesn't exists.", clientResponse.statusCode().value())))
+               .onStatus(HttpStatus::is4xxClientError, this::clientError)
+               .onStatus(HttpStatus::is5xxServerError, this::serverError)
                 .bodyToMono(MovieInfo.class)
-               //.retry(3)
-               .retryWhen(RetryUtil.retrySpec())
-                .log();
+               .transform(upstreamGuard::withRetries);
+    }
+
+    public Flux<MovieInfo> retreiveMovieInfos(List<String> movieIds) {
+
+        var url = UriComponentsBuilder.fromHttpUrl(moviesInfoUrl())
+                .queryParam("ids", String.join(",", movieIds))
+                .buildAndExpand().toUriString();
+
+        return webClient
+                .get()
+                .uri(url)
+                .attribute(UpstreamMetricsFilterFunction.OPERATION, "movieInfosByIds")
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, this::clientError)
+                .onStatus(HttpStatus::is5xxServerError, this::serverError)
+                .bodyToFlux(MovieInfo.class)
+                .collectList()
+                .transform(upstreamGuard::withRetries)
+                .flatMapIterable(Function.identity());
     }
 
     public Flux<MovieInfo> retreiveMovieInfoStream() {
 
-        var url = moviesInfoUrl.concat("/stream");
+        var url = moviesInfoUrl().concat("/stream");
 
         return webClient
                 .get()
                 .uri(url)
+                .attribute(UpstreamMetricsFilterFunction.OPERATION, "stream")
                 .retrieve()
-                .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
-                    log.info("Status code is: {}", clientResponse.statusCode().value());
-
-                    return  clientResponse.bodyToMono(String.class)
-                            .flatMap(responseMessage -> Mono.error(new MoviesInfoClientException(responseMessage, clientResponse.statusCode().value())));
-                })
-                .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
-                    log.info("Status code is : {}", clientResponse.statusCode().value());
-                    return clientResponse.bodyToMono(String.class)
-                            .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException("Server exception in MoviesInfoService "+responseMessage)));
-                })
+                .onStatus(HttpStatus::is4xxClientError, this::clientError)
+                .onStatus(HttpStatus::is5xxServerError, this::serverError)
                 .bodyToFlux(MovieInfo.class)
-                .retryWhen(RetryUtil.retrySpec())
-                .log();
+                //events may have been missed while the stream was down, so every connect, retries included, drops the cached movie infos
+                .doOnSubscribe(subscription -> movieInfoCache.invalidateAll())
+                .retryWhen(upstreamGuard.reconnectSpec())
+                //the stream is open-ended, it must not inherit the deadline of the request that opened it
+                .contextWrite(context -> context.delete(Deadline.class));
+    }
+
+    /**
+     * The movie info stream as raw NDJSON, for relaying it as is: the bytes are never decoded,
+     * only re-chunked on line boundaries.
+     */
+    public Flux<DataBuffer> retreiveRawMovieInfoStream() {
+
+        var url = moviesInfoUrl().concat("/stream");
+
+        return webClient
+                .get()
+                .uri(url)
+                .attribute(UpstreamMetricsFilterFunction.OPERATION, "rawStream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, this::clientError)
+                .onStatus(HttpStatus::is5xxServerError, this::serverError)
+                .bodyToFlux(DataBuffer.class)
+                //a partial line is released on failure, and the retried stream starts on a fresh line
+                .transform(NdjsonSplitter::split)
+                .retryWhen(upstreamGuard.reconnectSpec())
+                .contextWrite(context -> context.delete(Deadline.class));
+    }
+
+    private Mono<? extends Throwable> clientError(ClientResponse clientResponse) {
+        log.info("Status code is: {}", clientResponse.statusCode().value());
+        return clientResponse.bodyToMono(String.class)
+                .flatMap(responseMessage -> Mono.error(new MoviesInfoClientException(responseMessage, clientResponse.statusCode().value())));
+    }
+
+    private Mono<? extends Throwable> serverError(ClientResponse clientResponse) {
+        log.info("Status code is : {}", clientResponse.statusCode().value());
+        return clientResponse.bodyToMono(String.class)
+                .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException("Server exception in MoviesInfoService "+responseMessage)));
+    }
+
+    //the url of the first replica, the load balancer filter routes each call to the replica it picks
+    private String moviesInfoUrl() {
+        return moviesInfoUrls.get(0);
     }
 }
@@ -1,55 +1,131 @@
 package com.reactivespring.client;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exception.ReviewsClientException;
 import com.reactivespring.exception.ReviewsServerException;
-import com.reactivespring.util.RetryUtil;
+import com.reactivespring.metrics.UpstreamMetricsFilterFunction;
+import com.reactivespring.resilience.UpstreamGuard;
+import com.reactivespring.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.function.Function;
+
 @Component
 @Slf4j
 public class ReviewsRestClient {
 
     private WebClient webClient;
 
+    private SingleFlight<String, List<Review>> singleFlight;
+
+    private SingleFlight<String, ReviewSummary> summarySingleFlight;
+
+    private UpstreamGuard upstreamGuard;
+
     @Value("${restClient.reviewsUrl}")
-    private String reviewsUrl;
+    private List<String> reviewsUrls;
 
-    public ReviewsRestClient(WebClient webClient) {
+    public ReviewsRestClient(@Qualifier("reviews") WebClient webClient, @Qualifier("reviews") UpstreamGuard upstreamGuard,
+                             MeterRegistry meterRegistry) {
         this.webClient = webClient;
+        this.upstreamGuard = upstreamGuard;
+        this.singleFlight = new SingleFlight<>("reviews", meterRegistry);
+        this.summarySingleFlight = new SingleFlight<>("reviews-summary", meterRegistry);
     }
 
     public Flux<Review> retrieveReviews(String movieId) {
-        var url = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
+        //callers joining an in-flight call must see every review, so the shared call is collected first
+        return singleFlight.execute(movieId, () -> fetchReviews(movieId))
+                .flatMapIterable(Function.identity());
+    }
+
+    private Mono<List<Review>> fetchReviews(String movieId) {
+        var url = UriComponentsBuilder.fromHttpUrl(reviewsUrl())
                 .queryParam("movieInfoId", movieId)
                 .buildAndExpand().toUriString();
 
         return webClient
                 .get()
                 .uri(url)
+                .attribute(UpstreamMetricsFilterFunction.OPERATION, "reviewsByMovieId")
+                .retrieve()
+                //an empty Mono here would still decode the 404 body as reviews
+                .onStatus(status -> status == HttpStatus.NOT_FOUND, ClientResponse::createException)
+                .onStatus(HttpStatus::is4xxClientError, this::clientError)
+                .onStatus(HttpStatus::is5xxServerError, this::serverError)
+                .bodyToFlux(Review.class)
+                .collectList()
+                .transform(upstreamGuard::withRetries)
+                .onErrorResume(WebClientResponseException.NotFound.class, notFound -> Mono.just(List.of()));
+    }
+
+    public Flux<Review> retrieveReviews(List<String> movieIds) {
+        var url = UriComponentsBuilder.fromHttpUrl(reviewsUrl())
+                .queryParam("movieInfoIds", String.join(",", movieIds))
+                .buildAndExpand().toUriString();
+
+        return webClient
+                .get()
+                .uri(url)
+                .attribute(UpstreamMetricsFilterFunction.OPERATION, "reviewsByMovieIds")
                 .retrieve()
-                .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
-                    log.info("Status code is: {}", clientResponse.statusCode().value());
-                    if(clientResponse.statusCode().equals(HttpStatus.NOT_FOUND)) {
-                        return Mono.empty();
-                    }
-
-                    return  clientResponse.bodyToMono(String.class)
-                            .flatMap(responseMessage -> Mono.error(new ReviewsClientException(responseMessage)));
-                })
-                .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
-                    log.info("Status code is : {}", clientResponse.statusCode().value());
-                    return clientResponse.bodyToMono(String.class)
-                            .flatMap(responseMessage -> Mono.error(new ReviewsServerException("Server exception in ReviewsService "+responseMessage)));
-                })
+                .onStatus(status -> status == HttpStatus.NOT_FOUND, ClientResponse::createException)
+                .onStatus(HttpStatus::is4xxClientError, this::clientError)
+                .onStatus(HttpStatus::is5xxServerError, this::serverError)
                 .bodyToFlux(Review.class)
-                .retryWhen(RetryUtil.retrySpec());
+                .collectList()
+                .transform(upstreamGuard::withRetries)
+                .onErrorResume(WebClientResponseException.NotFound.class, notFound -> Mono.just(List.of()))
+                .flatMapIterable(Function.identity());
+    }
+
+    public Mono<ReviewSummary> retrieveReviewSummary(String movieId) {
+        return summarySingleFlight.execute(movieId, () -> fetchReviewSummary(movieId));
+    }
+
+    private Mono<ReviewSummary> fetchReviewSummary(String movieId) {
+        var url = UriComponentsBuilder.fromHttpUrl(reviewsUrl())
+                .path("/summary")
+                .queryParam("movieInfoId", movieId)
+                .buildAndExpand().toUriString();
+
+        return webClient
+                .get()
+                .uri(url)
+                .attribute(UpstreamMetricsFilterFunction.OPERATION, "reviewSummary")
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, this::clientError)
+                .onStatus(HttpStatus::is5xxServerError, this::serverError)
+                .bodyToMono(ReviewSummary.class)
+                .transform(upstreamGuard::withRetries);
+    }
+
+    private Mono<? extends Throwable> clientError(ClientResponse clientResponse) {
+        log.info("Status code is: {}", clientResponse.statusCode().value());
+        return clientResponse.bodyToMono(String.class)
+                .flatMap(responseMessage -> Mono.error(new ReviewsClientException(responseMessage)));
+    }
+
+    private Mono<? extends Throwable> serverError(ClientResponse clientResponse) {
+        log.info("Status code is : {}", clientResponse.statusCode().value());
+        return clientResponse.bodyToMono(String.class)
+                .flatMap(responseMessage -> Mono.error(new ReviewsServerException("Server exception in ReviewsService "+responseMessage)));
+    }
+
+    private String reviewsUrl() {
+        return reviewsUrls.get(0);
     }
 }
@@ -0,0 +1,64 @@
+package com.reactivespring.config;
+
+import com.reactivespring.exception.ConcurrencyLimitExceededException;
+import com.reactivespring.resilience.AdaptiveConcurrencyLimiter;
+import com.reactivespring.resilience.HedgingPolicy;
+import com.reactivespring.resilience.RetryBudget;
+import com.reactivespring.resilience.UpstreamGuard;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(UpstreamProperties.class)
+public class ResilienceConfig {
+
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(MeterRegistry meterRegistry) {
+        var circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry)
+                .bindTo(meterRegistry);
+        return circuitBreakerRegistry;
+    }
+
+    @Bean
+    @Qualifier("moviesInfo")
+    public UpstreamGuard moviesInfoGuard(UpstreamProperties upstreamProperties, CircuitBreakerRegistry circuitBreakerRegistry,
+                                         MeterRegistry meterRegistry) {
+        return upstreamGuard("movies-info", upstreamProperties.getMoviesInfo(), circuitBreakerRegistry, meterRegistry);
+    }
+
+    @Bean
+    @Qualifier("reviews")
+    public UpstreamGuard reviewsGuard(UpstreamProperties upstreamProperties, CircuitBreakerRegistry circuitBreakerRegistry,
+                                      MeterRegistry meterRegistry) {
+        return upstreamGuard("reviews", upstreamProperties.getReviews(), circuitBreakerRegistry, meterRegistry);
+    }
+
+    private UpstreamGuard upstreamGuard(String name, UpstreamProperties.Settings settings,
+                                        CircuitBreakerRegistry circuitBreakerRegistry, MeterRegistry meterRegistry) {
+        var circuitBreakerSettings = settings.getCircuitBreaker();
+        var circuitBreakerConfig = CircuitBreakerConfig.custom()
+                .failureRateThreshold(circuitBreakerSettings.getFailureRateThreshold())
+                .slowCallRateThreshold(circuitBreakerSettings.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(circuitBreakerSettings.getSlowCallDurationThreshold())
+                .slidingWindowSize(circuitBreakerSettings.getSlidingWindowSize())
+                .minimumNumberOfCalls(circuitBreakerSettings.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(circuitBreakerSettings.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(circuitBreakerSettings.getPermittedNumberOfCallsInHalfOpenState())
+                .recordException(UpstreamGuard::isFailure)
+                .ignoreExceptions(ConcurrencyLimitExceededException.class)
+                .build();
+
+        var circuitBreaker = circuitBreakerRegistry.circuitBreaker(name, circuitBreakerConfig);
+        var concurrencyLimiter = new AdaptiveConcurrencyLimiter(name, settings.getConcurrencyLimit(), meterRegistry);
+        var retryBudget = new RetryBudget(name, settings.getRetry().getBudgetRatio(), settings.getRetry().getBudgetMaxTokens(), meterRegistry);
+        var hedgingPolicy = new HedgingPolicy(name, settings.getHedge(), meterRegistry);
+        return new UpstreamGuard(name, circuitBreaker, concurrencyLimiter, settings.getRetry(), retryBudget, hedgingPolicy);
+    }
+}
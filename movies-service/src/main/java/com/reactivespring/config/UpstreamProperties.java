@@ -0,0 +1,95 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "upstream")
+public class UpstreamProperties {
+
+    private Settings moviesInfo = new Settings();
+    private Settings reviews = new Settings();
+
+    @Data
+    public static class Settings {
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+        private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+        private Retry retry = new Retry();
+        private Hedge hedge = new Hedge();
+        private ConnectionPool connectionPool = new ConnectionPool();
+        private Http http = new Http();
+        private LoadBalancer loadBalancer = new LoadBalancer();
+    }
+
+    @Data
+    public static class CircuitBreaker {
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 100;
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(2);
+        private int slidingWindowSize = 50;
+        private int minimumNumberOfCalls = 20;
+        private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+        private int permittedNumberOfCallsInHalfOpenState = 5;
+    }
+
+    @Data
+    public static class ConcurrencyLimit {
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+        private double backoffRatio = 0.9;
+        private Duration latencyThreshold = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Retry {
+        private int maxRetries = 3;
+        private Duration minBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(2);
+        private Duration perAttemptTimeout = Duration.ofSeconds(2);
+        private double budgetRatio = 0.1;
+        private double budgetMaxTokens = 10;
+    }
+
+    @Data
+    public static class Hedge {
+        private boolean enabled = false;
+        private double percentile = 0.95;
+        private Duration initialDelay = Duration.ofMillis(200);
+        private Duration minDelay = Duration.ofMillis(20);
+        private double maxHedgeRatio = 0.1;
+        private double maxTokens = 10;
+    }
+
+    @Data
+    public static class ConnectionPool {
+        private int maxConnections = 500;
+        private int pendingAcquireMaxCount = 1000;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInterval = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Http {
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        private Duration responseTimeout = Duration.ofSeconds(5);
+        private boolean http2 = false;
+    }
+
+    @Data
+    public static class LoadBalancer {
+        private int consecutiveErrors = 5;
+        private Duration latencyThreshold = Duration.ofSeconds(1);
+        private double latencyOutlierFactor = 3;
+        private Duration baseEjectionTime = Duration.ofSeconds(30);
+        private Duration maxEjectionTime = Duration.ofMinutes(5);
+        private int maxEjectionPercent = 50;
+        private Duration healthCheckInterval = Duration.ofSeconds(5);
+        private String healthCheckPath = "/actuator/health";
+        private Duration healthCheckTimeout = Duration.ofSeconds(1);
+    }
+}
@@ -1,14 +1,99 @@
 package com.reactivespring.config;
 
+import com.reactivespring.deadline.DeadlineExchangeFilterFunction;
+import com.reactivespring.loadbalancer.LoadBalancerExchangeFilterFunction;
+import com.reactivespring.loadbalancer.UpstreamLoadBalancer;
+import com.reactivespring.metrics.UpstreamMetricsFilterFunction;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.List;
 
 @Configuration
 public class WebClientConfig {
 
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider moviesInfoConnectionProvider(UpstreamProperties upstreamProperties) {
+        return connectionProvider("movies-info", upstreamProperties.getMoviesInfo().getConnectionPool());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider reviewsConnectionProvider(UpstreamProperties upstreamProperties) {
+        return connectionProvider("reviews", upstreamProperties.getReviews().getConnectionPool());
+    }
+
+    //restClient urls are comma-separated lists of replicas serving the same paths
+    @Bean(destroyMethod = "dispose")
+    @Qualifier("moviesInfo")
+    public UpstreamLoadBalancer moviesInfoLoadBalancer(WebClient.Builder builder, UpstreamProperties upstreamProperties,
+                                                       @Value("${restClient.moviesInfoUrl}") List<String> moviesInfoUrls,
+                                                       MeterRegistry meterRegistry) {
+        return new UpstreamLoadBalancer("movies-info", moviesInfoUrls, upstreamProperties.getMoviesInfo().getLoadBalancer(),
+                builder.build(), meterRegistry);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    @Qualifier("reviews")
+    public UpstreamLoadBalancer reviewsLoadBalancer(WebClient.Builder builder, UpstreamProperties upstreamProperties,
+                                                    @Value("${restClient.reviewsUrl}") List<String> reviewsUrls,
+                                                    MeterRegistry meterRegistry) {
+        return new UpstreamLoadBalancer("reviews", reviewsUrls, upstreamProperties.getReviews().getLoadBalancer(),
+                builder.build(), meterRegistry);
+    }
+
+    @Bean
+    @Qualifier("moviesInfo")
+    public WebClient moviesInfoWebClient(WebClient.Builder builder, UpstreamProperties upstreamProperties,
+                                         @Qualifier("moviesInfo") UpstreamLoadBalancer loadBalancer,
+                                         MeterRegistry meterRegistry) {
+        return webClient(builder, moviesInfoConnectionProvider(upstreamProperties), upstreamProperties.getMoviesInfo().getHttp(),
+                new UpstreamMetricsFilterFunction("movies-info", meterRegistry), loadBalancer);
+    }
+
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
-        return builder.build();
+    @Qualifier("reviews")
+    public WebClient reviewsWebClient(WebClient.Builder builder, UpstreamProperties upstreamProperties,
+                                      @Qualifier("reviews") UpstreamLoadBalancer loadBalancer,
+                                      MeterRegistry meterRegistry) {
+        return webClient(builder, reviewsConnectionProvider(upstreamProperties), upstreamProperties.getReviews().getHttp(),
+                new UpstreamMetricsFilterFunction("reviews", meterRegistry), loadBalancer);
+    }
+
+    private WebClient webClient(WebClient.Builder builder, ConnectionProvider connectionProvider, UpstreamProperties.Http http,
+                                UpstreamMetricsFilterFunction metricsFilterFunction, UpstreamLoadBalancer loadBalancer) {
+        var httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) http.getConnectTimeout().toMillis())
+                .responseTimeout(http.getResponseTimeout());
+        if (http.isHttp2()) {
+            //upgrades to h2c when the upstream supports it and stays on HTTP/1.1 otherwise
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(new DeadlineExchangeFilterFunction())
+                .filter(metricsFilterFunction)
+                .filter(new LoadBalancerExchangeFilterFunction(loadBalancer))
+                .build();
+    }
+
+    private ConnectionProvider connectionProvider(String name, UpstreamProperties.ConnectionPool pool) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictInterval())
+                .metrics(true)
+                .build();
     }
 }
@@ -1,44 +1,244 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.cache.MovieCache;
 import com.reactivespring.client.MoviesInfoRestClient;
 import com.reactivespring.client.ReviewsRestClient;
+import com.reactivespring.deadline.Deadline;
 import com.reactivespring.domain.Movie;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import com.reactivespring.exception.ReviewsClientException;
+import com.reactivespring.stream.MovieInfoStreamHub;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
 @RestController
+@Slf4j
 @RequestMapping("/v1/movies")
 public class MoviesController {
 
     private MoviesInfoRestClient moviesInfoRestClient;
     private ReviewsRestClient reviewsRestClient;
+    private MovieInfoStreamHub movieInfoStreamHub;
+    private MovieCache movieCache;
+
+    @Value("${moviesService.concurrentFetch:true}")
+    private boolean concurrentFetch;
+
+    @Value("${moviesService.batchSize:50}")
+    private int batchSize;
+
+    @Value("${moviesService.reviewsTimeout:500ms}")
+    private Duration reviewsTimeout;
+
+    @Value("${moviesService.streamWindowSize:50}")
+    private int streamWindowSize;
+
+    @Value("${moviesService.streamWindowTimeout:100ms}")
+    private Duration streamWindowTimeout;
 
-    public MoviesController(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient) {
+    @Value("${moviesService.streamConcurrency:4}")
+    private int streamConcurrency;
+
+    @Value("${moviesService.streamMaxPendingWindows:256}")
+    private int streamMaxPendingWindows;
+
+    private Counter reviewsDegraded;
+
+    public MoviesController(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient,
+                            MovieInfoStreamHub movieInfoStreamHub, MovieCache movieCache, MeterRegistry meterRegistry) {
         this.moviesInfoRestClient = moviesInfoRestClient;
         this.reviewsRestClient = reviewsRestClient;
+        this.movieInfoStreamHub = movieInfoStreamHub;
+        this.movieCache = movieCache;
+        this.reviewsDegraded = Counter.builder("movies.reviews.degraded")
+                .description("Movies served without their reviews because the reviews did not arrive in time")
+                .register(meterRegistry);
     }
 
     @GetMapping("/{id}")
-    public Mono<Movie> retrieveMovieById(@PathVariable("id") String movieId) {
+    public Mono<ResponseEntity<Movie>> retrieveMovieById(@PathVariable("id") String movieId) {
+
+        return movieCache.movie(movieId, () -> composeMovie(movieId))
+                .map(this::withETag);
+    }
+
+    private Mono<Movie> composeMovie(String movieId) {
+
+        if (concurrentFetch) {
+            // both calls are in flight at once; an error on one side (e.g. a 404 for the movie info) cancels the other
+            return Mono.zip(moviesInfoRestClient.retreiveMovieInfo(movieId),
+                    reviewsWithinBudget(reviewsRestClient.retrieveReviews(movieId).collectList()),
+                    this::toMovie);
+        }
 
         return moviesInfoRestClient.retreiveMovieInfo(movieId)
                 .flatMap(movieInfo -> {
                     var reviewListMono = reviewsRestClient.retrieveReviews(movieId)
                             .collectList();
 
-                    return reviewListMono.map(reviews -> new Movie(movieInfo, reviews));
+                    return reviewsWithinBudget(reviewListMono).map(reviews -> toMovie(movieInfo, reviews));
                 });
     }
 
+    @GetMapping(value = "/{id}", params = "reviews=summary")
+    public Mono<ResponseEntity<Movie>> retrieveMovieSummaryById(@PathVariable("id") String movieId) {
+
+        return movieCache.movieSummary(movieId, () -> composeMovieSummary(movieId))
+                .map(this::withETag);
+    }
+
+    private Mono<Movie> composeMovieSummary(String movieId) {
+
+        // count, average and histogram of the ratings are computed by movies-review-service, the reviews never leave it
+        return Mono.zip(moviesInfoRestClient.retreiveMovieInfo(movieId),
+                reviewsWithinBudget(reviewsRestClient.retrieveReviewSummary(movieId)),
+                this::toMovieSummary);
+    }
+
+    /**
+     * A GET with a matching If-None-Match is answered with 304 and no body.
+     * The ETag is weak because it is derived from the content's hash code, which is cheap and
+     * the same on every node, but not collision free. Degraded movies get none, so clients
+     * do not keep revalidating a movie that is missing its reviews.
+     */
+    private ResponseEntity<Movie> withETag(Movie movie) {
+        if (movie.isReviewsDegraded()) {
+            return ResponseEntity.ok(movie);
+        }
+        return ResponseEntity.ok()
+                .eTag("W/\"" + Integer.toHexString(movie.hashCode()) + "\"")
+                .body(movie);
+    }
+
+    /**
+     * The movie info is useful on its own: whenever the reviews fail, are slow or their upstream is
+     * shedding load, the movie is served without them instead of failing the whole request.
+     * An empty result means the reviews were given up on.
+     * The budget is also the deadline of the reviews call, so its attempts and retry backoffs are
+     * planned within it rather than within the longer per-attempt timeout of the upstream.
+     */
+    private <T> Mono<Optional<T>> reviewsWithinBudget(Mono<T> reviews) {
+        return reviews
+                .map(Optional::of)
+                .timeout(reviewsTimeout)
+                .onErrorResume(this::isDegradable, ex -> {
+                    log.warn("Serving movie without reviews : {}", ex.toString());
+                    reviewsDegraded.increment();
+                    return Mono.just(Optional.empty());
+                })
+                .contextWrite(context -> Deadline.from(context)
+                        .map(deadline -> deadline.within(reviewsTimeout))
+                        .orElseGet(() -> Deadline.after(reviewsTimeout))
+                        .storeIn(context));
+    }
+
+    //a 4xx is a bug in the request, every other failure only costs the movie its reviews
+    private boolean isDegradable(Throwable ex) {
+        return !(ex instanceof ReviewsClientException);
+    }
+
+    private Movie toMovie(MovieInfo movieInfo, Optional<List<Review>> reviews) {
+        return reviews
+                .map(reviewList -> new Movie(movieInfo, reviewList))
+                .orElseGet(() -> degraded(new Movie(movieInfo, new ArrayList<>())));
+    }
+
+    private Movie toMovieSummary(MovieInfo movieInfo, Optional<ReviewSummary> reviewSummary) {
+        var movie = new Movie(movieInfo, null);
+        reviewSummary.ifPresentOrElse(movie::setReviewSummary, () -> degraded(movie));
+        return movie;
+    }
+
+    private Movie degraded(Movie movie) {
+        movie.setReviewsDegraded(true);
+        return movie;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Movie> retrieveMoviesByIds(@RequestParam("ids") List<String> movieIds) {
+
+        var distinctIds = movieIds.stream()
+                .distinct()
+                .collect(Collectors.toList());
+
+        // one bulk call per upstream for every batchSize ids, instead of two calls per movie;
+        // the movies of a batch are sent as soon as both of its lookups are back
+        return Flux.fromIterable(distinctIds)
+                .buffer(batchSize)
+                .concatMap(batch -> Mono.zip(
+                                moviesInfoRestClient.retreiveMovieInfos(batch)
+                                        .collectMap(MovieInfo::getMovieInfoId),
+                                reviewsWithinBudget(reviewsRestClient.retrieveReviews(batch)
+                                        .collectMultimap(review -> String.valueOf(review.getMovieInfoId()))))
+                        .flatMapMany(tuple -> Flux.fromIterable(batch)
+                                .filter(movieId -> tuple.getT1().containsKey(movieId))
+                                .map(movieId -> toMovie(tuple.getT1().get(movieId),
+                                        tuple.getT2().map(reviews -> new ArrayList<>(reviews.getOrDefault(movieId, List.of())))))));
+    }
+
     @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
     public Flux<MovieInfo> retrieveMovieByStream() {
 
-        return moviesInfoRestClient.retreiveMovieInfoStream();
+        return movieInfoStreamHub.stream();
+    }
+
+    @GetMapping(value = "/stream", params = "raw=true", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<Void> relayMovieInfoStream(ServerHttpResponse response) {
+
+        // same events as /stream, relayed byte for byte instead of decoded and encoded again
+        response.getHeaders().setContentType(MediaType.APPLICATION_NDJSON);
+        return response.writeAndFlushWith(moviesInfoRestClient.retreiveRawMovieInfoStream()
+                .map(Mono::just));
+    }
+
+    @GetMapping(value = "/stream", params = "enriched=true", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Movie> retrieveEnrichedMovieStream() {
+
+        // one bulk reviews lookup per window of events, instead of a round-trip per event
+        return movieInfoStreamHub.stream()
+                //a deleted movie info has no movie to enrich
+                .filter(movieInfo -> !movieInfo.isTombstone())
+                .bufferTimeout(streamWindowSize, streamWindowTimeout)
+                // bufferTimeout cannot hold back a window that is due, so windows wait here for the enrichment;
+                // a subscriber that falls this far behind gets an error instead of unbounded memory use
+                .onBackpressureBuffer(streamMaxPendingWindows)
+                .flatMapSequential(this::enrich, streamConcurrency);
+    }
+
+    private Flux<Movie> enrich(List<MovieInfo> movieInfos) {
+        var movieIds = movieInfos.stream()
+                .map(MovieInfo::getMovieInfoId)
+                .distinct()
+                .collect(Collectors.toList());
+
+        var reviewsMono = reviewsRestClient.retrieveReviews(movieIds)
+                .collectMultimap(review -> String.valueOf(review.getMovieInfoId()));
+
+        return reviewsWithinBudget(reviewsMono)
+                //the stream outlives the deadline of the request that opened it, each window is bounded by reviewsTimeout instead
+                .contextWrite(context -> context.delete(Deadline.class))
+                .flatMapMany(reviews -> Flux.fromIterable(movieInfos)
+                        .map(movieInfo -> toMovie(movieInfo,
+                                reviews.map(byMovieId -> new ArrayList<>(byMovieId.getOrDefault(movieInfo.getMovieInfoId(), List.of()))))));
     }
 }
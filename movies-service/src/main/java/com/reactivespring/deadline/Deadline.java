@@ -0,0 +1,51 @@
+package com.reactivespring.deadline;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Point in time after which nobody is waiting for the result of a request anymore.
+ * It travels in the Reactor {@link Context} and between services as the remaining budget
+ * in the {@link #TIMEOUT_HEADER} header.
+ */
+public class Deadline {
+
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    public static Optional<Deadline> from(ContextView contextView) {
+        return contextView.getOrEmpty(Deadline.class);
+    }
+
+    /**
+     * The sooner of this deadline and one {@code timeout} from now.
+     */
+    public Deadline within(Duration timeout) {
+        var bounded = after(timeout);
+        return bounded.expiresAtNanos - expiresAtNanos < 0 ? bounded : this;
+    }
+
+    public Context storeIn(Context context) {
+        return context.put(Deadline.class, this);
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+}
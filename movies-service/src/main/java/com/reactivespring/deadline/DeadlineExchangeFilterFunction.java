@@ -0,0 +1,30 @@
+package com.reactivespring.deadline;
+
+import com.reactivespring.exception.DeadlineExceededException;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * Passes the remaining budget of the current request on to the upstream, and does not call
+ * the upstream at all once the deadline has passed.
+ */
+public class DeadlineExchangeFilterFunction implements ExchangeFilterFunction {
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.deferContextual(contextView -> Deadline.from(contextView)
+                .map(deadline -> {
+                    if (deadline.isExpired()) {
+                        return Mono.<ClientResponse>error(new DeadlineExceededException("Deadline exceeded before calling " + request.url()));
+                    }
+                    var withBudget = ClientRequest.from(request)
+                            .header(Deadline.TIMEOUT_HEADER, String.valueOf(deadline.remaining().toMillis()))
+                            .build();
+                    return next.exchange(withBudget);
+                })
+                .orElseGet(() -> next.exchange(request)));
+    }
+}
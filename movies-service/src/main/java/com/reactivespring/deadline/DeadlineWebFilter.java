@@ -0,0 +1,42 @@
+package com.reactivespring.deadline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Starts the deadline of every incoming request, from the caller's {@link Deadline#TIMEOUT_HEADER}
+ * or the configured default, so that upstream calls made for it can be bounded by it.
+ */
+@Component
+@Slf4j
+public class DeadlineWebFilter implements WebFilter {
+
+    @Value("${deadline.defaultTimeout:5s}")
+    private Duration defaultTimeout;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var deadline = Deadline.after(timeout(exchange.getRequest().getHeaders().getFirst(Deadline.TIMEOUT_HEADER)));
+        return chain.filter(exchange)
+                .contextWrite(deadline::storeIn);
+    }
+
+    private Duration timeout(String header) {
+        if (header == null) {
+            return defaultTimeout;
+        }
+        try {
+            return Duration.ofMillis(Long.parseLong(header.trim()));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring invalid {} header : {}", Deadline.TIMEOUT_HEADER, header);
+            return defaultTimeout;
+        }
+    }
+}
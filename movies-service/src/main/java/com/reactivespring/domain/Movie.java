@@ -1,6 +1,7 @@
 package com.reactivespring.domain;
 
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,8 +11,18 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Movie {
 
     private MovieInfo movieInfo;
     private List<Review> reviewList;
+    //true when the reviews could not be fetched in time and reviewList is incomplete
+    private boolean reviewsDegraded;
+    //set instead of reviewList when only the summary of the reviews was asked for
+    private ReviewSummary reviewSummary;
+
+    public Movie(MovieInfo movieInfo, List<Review> reviewList) {
+        this.movieInfo = movieInfo;
+        this.reviewList = reviewList;
+    }
 }
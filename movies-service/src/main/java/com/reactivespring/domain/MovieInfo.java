@@ -1,6 +1,7 @@
 package com.reactivespring.domain;
 
-
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -27,4 +28,22 @@ public class MovieInfo {
     @NotNull
     private List<@NotBlank(message = "movieInfo.cast must be present") String> cast;
     private LocalDate release_date;
+    //the version of the movie info upstream, a cached copy is never replaced by an older one
+    private Long version;
+    //true on the stream event of a deleted movie info, which carries nothing but its id
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean deleted;
+
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate release_date) {
+        this(movieInfoId, name, year, cast, release_date, null);
+    }
+
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate release_date, Long version) {
+        this(movieInfoId, name, year, cast, release_date, version, null);
+    }
+
+    @JsonIgnore
+    public boolean isTombstone() {
+        return Boolean.TRUE.equals(deleted);
+    }
 }
@@ -1,7 +1,10 @@
 package com.reactivespring.exceptionhandler;
 
 
+import com.reactivespring.exception.ConcurrencyLimitExceededException;
+import com.reactivespring.exception.DeadlineExceededException;
 import com.reactivespring.exception.MoviesInfoClientException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -20,6 +23,22 @@ public class GlobalErrorHandler {
     }
 
 
+    @ExceptionHandler({CallNotPermittedException.class, ConcurrencyLimitExceededException.class})
+    public ResponseEntity<String> handleUpstreamUnavailableException(RuntimeException runtimeException) {
+        log.error("Exception caught in  handleUpstreamUnavailableException : {}", runtimeException.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(runtimeException.getMessage());
+    }
+
+
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<String> handleDeadlineExceededException(DeadlineExceededException deadlineExceededException) {
+        log.error("Exception caught in  handleDeadlineExceededException : {}", deadlineExceededException.getMessage());
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(deadlineExceededException.getMessage());
+    }
+
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<String> handleRuntimeException(RuntimeException runtimeException) {
         log.error("Exception caught in  handleRuntimeException", runtimeException);
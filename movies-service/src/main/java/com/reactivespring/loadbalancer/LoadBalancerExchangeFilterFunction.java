@@ -0,0 +1,49 @@
+package com.reactivespring.loadbalancer;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Sends every request, including each retry and hedge, to the replica chosen by the
+ * {@link UpstreamLoadBalancer}, and reports the outcome back to it. A call is outstanding until
+ * its response headers arrive; 5xx responses and I/O errors count as errors of the replica.
+ */
+public class LoadBalancerExchangeFilterFunction implements ExchangeFilterFunction {
+
+    private final UpstreamLoadBalancer loadBalancer;
+
+    public LoadBalancerExchangeFilterFunction(UpstreamLoadBalancer loadBalancer) {
+        this.loadBalancer = loadBalancer;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            var endpoint = loadBalancer.choose();
+            var routed = ClientRequest.from(request)
+                    .url(endpoint.route(request.url()))
+                    .build();
+            endpoint.outstanding.incrementAndGet();
+            var start = System.nanoTime();
+            return next.exchange(routed)
+                    .doOnNext(response -> {
+                        if (response.rawStatusCode() >= 500) {
+                            loadBalancer.onError(endpoint);
+                        } else {
+                            loadBalancer.onSuccess(endpoint, System.nanoTime() - start);
+                        }
+                    })
+                    .doOnError(ex -> loadBalancer.onError(endpoint))
+                    .doFinally(signalType -> {
+                        endpoint.outstanding.decrementAndGet();
+                        if (signalType == SignalType.CANCEL) {
+                            loadBalancer.onCancel(endpoint, System.nanoTime() - start);
+                        }
+                    });
+        });
+    }
+}
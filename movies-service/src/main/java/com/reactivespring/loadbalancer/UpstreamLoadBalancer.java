@@ -0,0 +1,263 @@
+package com.reactivespring.loadbalancer;
+
+import com.reactivespring.config.UpstreamProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads the calls to an upstream over its replicas: of two randomly picked replicas, the one
+ * with fewer outstanding calls gets the call (power of two choices). A replica is ejected after
+ * consecutive errors, or when its average latency is an outlier compared to the other replicas;
+ * once the ejection time is over it is only reinstated after a successful health check.
+ * Ejection times grow with repeated ejections, and at most maxEjectionPercent of the replicas
+ * are ejected at any time, so there is always a replica to call.
+ */
+@Slf4j
+public class UpstreamLoadBalancer {
+
+    /**
+     * weight of the newest latency sample in the moving average
+     */
+    private static final double LATENCY_DECAY = 0.2;
+
+    private final String name;
+    private final List<Endpoint> endpoints;
+    private final int consecutiveErrors;
+    private final long latencyThresholdNanos;
+    private final double latencyOutlierFactor;
+    private final long baseEjectionNanos;
+    private final long maxEjectionNanos;
+    private final int maxEjected;
+    private final String healthCheckPath;
+    private final Duration healthCheckTimeout;
+
+    private final WebClient healthCheckClient;
+    private final Disposable healthChecks;
+
+    private final Counter ejections;
+
+    public UpstreamLoadBalancer(String name, List<String> urls, UpstreamProperties.LoadBalancer settings,
+                                WebClient healthCheckClient, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.endpoints = urls.stream()
+                .map(Endpoint::new)
+                .collect(Collectors.toList());
+        this.consecutiveErrors = settings.getConsecutiveErrors();
+        this.latencyThresholdNanos = settings.getLatencyThreshold().toNanos();
+        this.latencyOutlierFactor = settings.getLatencyOutlierFactor();
+        this.baseEjectionNanos = settings.getBaseEjectionTime().toNanos();
+        this.maxEjectionNanos = settings.getMaxEjectionTime().toNanos();
+        this.maxEjected = endpoints.size() * settings.getMaxEjectionPercent() / 100;
+        this.healthCheckPath = settings.getHealthCheckPath();
+        this.healthCheckTimeout = settings.getHealthCheckTimeout();
+        this.healthCheckClient = healthCheckClient;
+
+        for (var endpoint : endpoints) {
+            Gauge.builder("upstream.lb.outstanding", endpoint.outstanding, AtomicInteger::get)
+                    .tags("upstream", name, "endpoint", endpoint.authority())
+                    .register(meterRegistry);
+            Gauge.builder("upstream.lb.ejected", endpoint, e -> e.ejected ? 1 : 0)
+                    .tags("upstream", name, "endpoint", endpoint.authority())
+                    .register(meterRegistry);
+        }
+        this.ejections = Counter.builder("upstream.lb.ejections")
+                .tag("upstream", name)
+                .register(meterRegistry);
+
+        this.healthChecks = endpoints.size() < 2 ? Disposables.disposed()
+                : Flux.interval(settings.getHealthCheckInterval())
+                .concatMap(tick -> checkEjected())
+                .subscribe();
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public Endpoint choose() {
+        if (endpoints.size() == 1) {
+            return endpoints.get(0);
+        }
+        var available = endpoints.stream()
+                .filter(endpoint -> !endpoint.ejected)
+                .collect(Collectors.toList());
+        if (available.size() < 2) {
+            return available.isEmpty() ? endpoints.get(0) : available.get(0);
+        }
+        var random = ThreadLocalRandom.current();
+        var first = random.nextInt(available.size());
+        var second = random.nextInt(available.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        return lessLoaded(available.get(first), available.get(second));
+    }
+
+    private static Endpoint lessLoaded(Endpoint a, Endpoint b) {
+        var outstandingA = a.outstanding.get();
+        var outstandingB = b.outstanding.get();
+        if (outstandingA != outstandingB) {
+            return outstandingA < outstandingB ? a : b;
+        }
+        return a.averageLatencyNanos <= b.averageLatencyNanos ? a : b;
+    }
+
+    public void onSuccess(Endpoint endpoint, long latencyNanos) {
+        endpoint.consecutiveErrors.set(0);
+        recordLatency(endpoint, latencyNanos);
+        if (endpoint.averageLatencyNanos > latencyThresholdNanos && isLatencyOutlier(endpoint)) {
+            eject(endpoint, "average latency " + endpoint.averageLatencyNanos / 1_000_000 + "ms");
+        }
+    }
+
+    public void onError(Endpoint endpoint) {
+        if (endpoint.consecutiveErrors.incrementAndGet() >= consecutiveErrors) {
+            eject(endpoint, consecutiveErrors + " consecutive errors");
+        }
+    }
+
+    /**
+     * A cancelled call, e.g. by a timeout or a faster hedge, still tells that the replica took at
+     * least this long.
+     */
+    public void onCancel(Endpoint endpoint, long elapsedNanos) {
+        recordLatency(endpoint, elapsedNanos);
+    }
+
+    private void recordLatency(Endpoint endpoint, long latencyNanos) {
+        var average = endpoint.averageLatencyNanos;
+        endpoint.averageLatencyNanos = average == 0 ? latencyNanos
+                : (long) (LATENCY_DECAY * latencyNanos + (1 - LATENCY_DECAY) * average);
+    }
+
+    private boolean isLatencyOutlier(Endpoint endpoint) {
+        //when all replicas are slow the upstream as a whole is, and ejecting some of them would only add load to the others
+        return endpoints.stream()
+                .filter(other -> other != endpoint && !other.ejected && other.averageLatencyNanos > 0)
+                .anyMatch(other -> endpoint.averageLatencyNanos > latencyOutlierFactor * other.averageLatencyNanos);
+    }
+
+    private synchronized void eject(Endpoint endpoint, String reason) {
+        if (endpoint.ejected || endpoints.stream().filter(e -> e.ejected).count() >= maxEjected) {
+            return;
+        }
+        endpoint.ejections++;
+        var ejectionNanos = Math.min(baseEjectionNanos * endpoint.ejections, maxEjectionNanos);
+        endpoint.ejectedUntilNanos = System.nanoTime() + ejectionNanos;
+        endpoint.ejected = true;
+        ejections.increment();
+        log.warn("Ejected {} endpoint {} for {}ms : {}", name, endpoint.authority(), ejectionNanos / 1_000_000, reason);
+    }
+
+    /**
+     * Probes the ejected endpoints whose ejection time is over, and lets the repeated ejection
+     * penalty of the healthy endpoints wear off.
+     */
+    Mono<Void> checkEjected() {
+        var now = System.nanoTime();
+        return Flux.fromIterable(endpoints)
+                .doOnNext(endpoint -> {
+                    //one ejection is forgiven for every base ejection time spent in rotation
+                    if (!endpoint.ejected && endpoint.ejections > 0 && endpoint.penaltyDecayAtNanos <= now) {
+                        endpoint.ejections--;
+                        endpoint.penaltyDecayAtNanos = now + baseEjectionNanos;
+                    }
+                })
+                .filter(endpoint -> endpoint.ejected && endpoint.ejectedUntilNanos <= now)
+                .flatMap(endpoint -> isHealthy(endpoint)
+                        .filter(Boolean::booleanValue)
+                        .doOnNext(healthy -> reinstate(endpoint)))
+                .then();
+    }
+
+    private Mono<Boolean> isHealthy(Endpoint endpoint) {
+        if (healthCheckPath == null || healthCheckPath.isEmpty()) {
+            return Mono.just(true);
+        }
+        return healthCheckClient.get()
+                .uri(endpoint.resolve(healthCheckPath))
+                .retrieve()
+                .toBodilessEntity()
+                .map(response -> true)
+                .timeout(healthCheckTimeout)
+                .onErrorReturn(false);
+    }
+
+    private void reinstate(Endpoint endpoint) {
+        endpoint.consecutiveErrors.set(0);
+        endpoint.averageLatencyNanos = 0;
+        endpoint.penaltyDecayAtNanos = System.nanoTime() + baseEjectionNanos;
+        endpoint.ejected = false;
+        log.info("Reinstated {} endpoint {}", name, endpoint.authority());
+    }
+
+    public void dispose() {
+        healthChecks.dispose();
+    }
+
+    /**
+     * A replica, addressed by the scheme, host and port of its configured URL.
+     */
+    public static class Endpoint {
+
+        private final URI uri;
+
+        final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveErrors = new AtomicInteger();
+        private volatile long averageLatencyNanos;
+
+        private volatile boolean ejected;
+        private volatile long ejectedUntilNanos;
+        private volatile int ejections;
+        private volatile long penaltyDecayAtNanos;
+
+        Endpoint(String url) {
+            this.uri = URI.create(url.trim());
+        }
+
+        public String authority() {
+            return uri.getAuthority();
+        }
+
+        public boolean isEjected() {
+            return ejected;
+        }
+
+        /**
+         * The request URI pointed at this replica, keeping its path and query.
+         */
+        public URI route(URI requestUri) {
+            return UriComponentsBuilder.fromUri(requestUri)
+                    .scheme(uri.getScheme())
+                    .host(uri.getHost())
+                    .port(uri.getPort())
+                    .build(true)
+                    .toUri();
+        }
+
+        private URI resolve(String path) {
+            return UriComponentsBuilder.newInstance()
+                    .scheme(uri.getScheme())
+                    .host(uri.getHost())
+                    .port(uri.getPort())
+                    .path(path)
+                    .build()
+                    .toUri();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.reactivespring.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.actuate.metrics.web.reactive.server.WebFluxTags;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bytes in and out per endpoint, next to the latency already recorded as {@code http.server.requests}.
+ */
+@Component
+public class HttpExchangeSizeWebFilter implements WebFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    public HttpExchangeSizeWebFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var requestBytes = new AtomicLong();
+        var responseBytes = new AtomicLong();
+
+        var request = new ServerHttpRequestDecorator(exchange.getRequest()) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return super.getBody().doOnNext(dataBuffer -> requestBytes.addAndGet(dataBuffer.readableByteCount()));
+            }
+        };
+        var response = new ServerHttpResponseDecorator(exchange.getResponse()) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                return super.writeWith(Flux.from(body).doOnNext(dataBuffer -> responseBytes.addAndGet(dataBuffer.readableByteCount())));
+            }
+
+            @Override
+            public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+                return super.writeAndFlushWith(Flux.from(body).map(frames -> Flux.from(frames)
+                        .doOnNext(dataBuffer -> responseBytes.addAndGet(dataBuffer.readableByteCount()))));
+            }
+        };
+
+        var mutatedExchange = exchange.mutate().request(request).response(response).build();
+        return chain.filter(mutatedExchange)
+                .doFinally(signalType -> {
+                    //the uri pattern is only known once the request has been mapped to a handler
+                    var tags = Tags.of(WebFluxTags.uri(mutatedExchange), WebFluxTags.method(mutatedExchange));
+                    record("http.server.request.size", tags, requestBytes.get());
+                    record("http.server.response.size", tags, responseBytes.get());
+                });
+    }
+
+    private void record(String name, Tags tags, long bytes) {
+        DistributionSummary.builder(name)
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(bytes);
+    }
+}
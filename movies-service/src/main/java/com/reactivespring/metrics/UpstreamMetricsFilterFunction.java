@@ -0,0 +1,116 @@
+package com.reactivespring.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records every call to an upstream, tagged with the upstream and the operation set on the
+ * request with the {@link #OPERATION} attribute:
+ * <ul>
+ *     <li>{@code upstream.requests}: time until the response headers arrive, by status class</li>
+ *     <li>{@code upstream.requests.inflight}: calls waiting for their response</li>
+ *     <li>{@code upstream.request.size}: bytes sent in the request body, once per call</li>
+ *     <li>{@code upstream.response.size}: bytes received in the response body, once per call</li>
+ * </ul>
+ */
+public class UpstreamMetricsFilterFunction implements ExchangeFilterFunction {
+
+    public static final String OPERATION = UpstreamMetricsFilterFunction.class.getName() + ".operation";
+
+    private final String upstream;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public UpstreamMetricsFilterFunction(String upstream, MeterRegistry meterRegistry) {
+        this.upstream = upstream;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("upstream.requests.inflight", inFlight, AtomicInteger::get)
+                .tag("upstream", upstream)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        var tags = Tags.of("upstream", upstream,
+                "operation", request.attribute(OPERATION).map(Object::toString).orElse("none"),
+                "method", request.method().name());
+
+        return Mono.defer(() -> {
+            inFlight.incrementAndGet();
+            var sample = Timer.start(meterRegistry);
+            //a caller may still cancel once the response is in, the call is timed by whichever comes first
+            var stopped = new AtomicBoolean();
+            return next.exchange(countBytes(request, tags))
+                    .doOnNext(response -> stop(sample, stopped, tags.and("status", response.rawStatusCode() / 100 + "xx")))
+                    .doOnError(ex -> stop(sample, stopped, tags.and("status", "IO_ERROR")))
+                    .doFinally(signalType -> {
+                        inFlight.decrementAndGet();
+                        if (signalType == SignalType.CANCEL) {
+                            stop(sample, stopped, tags.and("status", "CANCELLED"));
+                        }
+                    })
+                    .map(response -> countBytes(response, tags));
+        });
+    }
+
+    private void stop(Timer.Sample sample, AtomicBoolean stopped, Tags tags) {
+        if (!stopped.compareAndSet(false, true)) {
+            return;
+        }
+        sample.stop(Timer.builder("upstream.requests")
+                .tags(tags)
+                .register(meterRegistry));
+    }
+
+    private ClientRequest countBytes(ClientRequest request, Tags tags) {
+        var requestBytes = new AtomicLong();
+        return ClientRequest.from(request)
+                .body((outputMessage, context) -> request.body()
+                        .insert(new ClientHttpRequestDecorator(outputMessage) {
+                            @Override
+                            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                                return super.writeWith(Flux.from(body)
+                                        .doOnNext(dataBuffer -> requestBytes.addAndGet(dataBuffer.readableByteCount())));
+                            }
+                        }, context)
+                        .doFinally(signalType -> record("upstream.request.size", tags, requestBytes.get())))
+                .build();
+    }
+
+    private ClientResponse countBytes(ClientResponse response, Tags tags) {
+        var responseBytes = new AtomicLong();
+        //the body arrives in as many buffers as the connection delivers, it is recorded once it ends
+        return response.mutate()
+                .body(body -> body
+                        .doOnNext(dataBuffer -> responseBytes.addAndGet(dataBuffer.readableByteCount()))
+                        .doFinally(signalType -> record("upstream.response.size", tags, responseBytes.get())))
+                .build();
+    }
+
+    private void record(String name, Tags tags, long bytes) {
+        DistributionSummary.builder(name)
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(bytes);
+    }
+}
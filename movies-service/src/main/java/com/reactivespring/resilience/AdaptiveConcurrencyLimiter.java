@@ -0,0 +1,88 @@
+package com.reactivespring.resilience;
+
+import com.reactivespring.config.UpstreamProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD concurrency limit: the limit grows by one for every limit's worth of successful calls
+ * made while the limit is in use, i.e. by about one per round trip, and is multiplied by the
+ * backoff ratio when a call fails or is slower than the latency threshold.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    private final Counter rejected;
+
+    public AdaptiveConcurrencyLimiter(String name, UpstreamProperties.ConcurrencyLimit settings, MeterRegistry meterRegistry) {
+        this.minLimit = settings.getMinLimit();
+        this.maxLimit = settings.getMaxLimit();
+        this.backoffRatio = settings.getBackoffRatio();
+        this.latencyThresholdNanos = settings.getLatencyThreshold().toNanos();
+        this.limit = settings.getInitialLimit();
+
+        Gauge.builder("upstream.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("upstream", name)
+                .register(meterRegistry);
+        Gauge.builder("upstream.concurrency.inflight", inFlight, AtomicInteger::get)
+                .tag("upstream", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("upstream.concurrency.rejected")
+                .tag("upstream", name)
+                .register(meterRegistry);
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            var current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void onSuccess(long latencyNanos) {
+        if (latencyNanos > latencyThresholdNanos) {
+            onDropped();
+            return;
+        }
+        synchronized (this) {
+            //only grow while the current limit is actually being used
+            if (inFlight.get() * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+    }
+
+    public void onDropped() {
+        synchronized (this) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        }
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
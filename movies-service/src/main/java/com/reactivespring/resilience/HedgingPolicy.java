@@ -0,0 +1,138 @@
+package com.reactivespring.resilience;
+
+import com.reactivespring.config.UpstreamProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends a second, identical attempt when the first one has not answered within the rolling
+ * latency percentile. The first attempt to answer wins and the other one is cancelled.
+ * Hedges are capped to a share of the requests with the same token bucket scheme as retries.
+ * An attempt that loses the race is recorded at the time it is cancelled, as a lower bound of
+ * its latency: the slow attempts are the ones that lose, and without them the percentile
+ * would only see the fast answers and keep shrinking the delay.
+ */
+public class HedgingPolicy {
+
+    private static final int WINDOW_SIZE = 512;
+    private static final int RECOMPUTE_EVERY = 64;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final double ratio;
+    private final double maxTokens;
+
+    private final long[] latencies = new long[WINDOW_SIZE];
+    //slot of the next sample, the window overwrites its oldest sample once full
+    private int next;
+    private int samples;
+    private int sinceRecompute;
+    private double tokens;
+    private volatile long delayNanos;
+
+    private final Counter hedges;
+    private final Counter hedgeWins;
+
+    public HedgingPolicy(String name, UpstreamProperties.Hedge settings, MeterRegistry meterRegistry) {
+        this.enabled = settings.isEnabled();
+        this.percentile = settings.getPercentile();
+        this.minDelayNanos = settings.getMinDelay().toNanos();
+        this.ratio = settings.getMaxHedgeRatio();
+        this.maxTokens = settings.getMaxTokens();
+        this.tokens = maxTokens;
+        this.delayNanos = settings.getInitialDelay().toNanos();
+
+        Gauge.builder("upstream.hedge.delay", this, policy -> policy.delayNanos / 1_000_000.0)
+                .tag("upstream", name)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.hedges = Counter.builder("upstream.hedges")
+                .tag("upstream", name)
+                .register(meterRegistry);
+        this.hedgeWins = Counter.builder("upstream.hedge.wins")
+                .tag("upstream", name)
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> hedge(Mono<T> attempt) {
+        if (!enabled) {
+            return attempt;
+        }
+        return Mono.defer(() -> {
+            onRequest();
+            var primary = recorded(attempt);
+            //a failed hedge must not end the call while the first attempt may still answer
+            var hedged = Mono.delay(Duration.ofNanos(delayNanos))
+                    .flatMap(tick -> {
+                        if (!tryAcquireHedge()) {
+                            return Mono.<T>never();
+                        }
+                        hedges.increment();
+                        return recorded(attempt).doOnNext(value -> hedgeWins.increment());
+                    })
+                    .onErrorResume(ex -> Mono.never());
+            return Mono.firstWithSignal(primary, hedged);
+        });
+    }
+
+    private <T> Mono<T> recorded(Mono<T> attempt) {
+        return Mono.defer(() -> {
+            var start = now();
+            var recorded = new AtomicBoolean();
+            return attempt
+                    .doOnNext(value -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            record(now() - start);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            record(now() - start);
+                        }
+                    });
+        });
+    }
+
+    //the clock of the scheduler the hedge delay runs on
+    private static long now() {
+        return Schedulers.parallel().now(TimeUnit.NANOSECONDS);
+    }
+
+    private synchronized void onRequest() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    private synchronized boolean tryAcquireHedge() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    private synchronized void record(long latencyNanos) {
+        latencies[next] = latencyNanos;
+        next = (next + 1) % WINDOW_SIZE;
+        samples = Math.min(samples + 1, WINDOW_SIZE);
+        if (++sinceRecompute == RECOMPUTE_EVERY) {
+            sinceRecompute = 0;
+            var window = Arrays.copyOf(latencies, samples);
+            Arrays.sort(window);
+            var index = (int) Math.ceil(percentile * window.length) - 1;
+            delayNanos = Math.max(minDelayNanos, window[Math.max(0, index)]);
+        }
+    }
+
+    public Duration getDelay() {
+        return Duration.ofNanos(delayNanos);
+    }
+}
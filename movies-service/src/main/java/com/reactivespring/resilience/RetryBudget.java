@@ -0,0 +1,53 @@
+package com.reactivespring.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Token bucket capping retries to a share of the requests: every request deposits
+ * {@code ratio} tokens and every retry withdraws a whole token.
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    private final Counter retries;
+    private final Counter exhausted;
+
+    public RetryBudget(String name, double ratio, double maxTokens, MeterRegistry meterRegistry) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+
+        Gauge.builder("upstream.retry.budget.tokens", this, RetryBudget::getTokens)
+                .tag("upstream", name)
+                .register(meterRegistry);
+        this.retries = Counter.builder("upstream.retries")
+                .tag("upstream", name)
+                .register(meterRegistry);
+        this.exhausted = Counter.builder("upstream.retry.budget.exhausted")
+                .tag("upstream", name)
+                .register(meterRegistry);
+    }
+
+    public synchronized void onRequest() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    public synchronized boolean tryAcquireRetry() {
+        if (tokens < 1) {
+            exhausted.increment();
+            return false;
+        }
+        tokens -= 1;
+        retries.increment();
+        return true;
+    }
+
+    public synchronized double getTokens() {
+        return tokens;
+    }
+}
@@ -0,0 +1,111 @@
+package com.reactivespring.resilience;
+
+import com.reactivespring.config.UpstreamProperties;
+import com.reactivespring.deadline.Deadline;
+import com.reactivespring.exception.ConcurrencyLimitExceededException;
+import com.reactivespring.exception.DeadlineExceededException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.exception.ReviewsServerException;
+import com.reactivespring.util.RetryUtil;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Wraps a single upstream call attempt in the upstream's circuit breaker and adaptive concurrency limit.
+ * An open breaker or an exhausted limit fails the call before any request is sent.
+ */
+public class UpstreamGuard {
+
+    private final String name;
+    private final CircuitBreaker circuitBreaker;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final UpstreamProperties.Retry retrySettings;
+    private final RetryBudget retryBudget;
+    private final HedgingPolicy hedgingPolicy;
+
+    public UpstreamGuard(String name, CircuitBreaker circuitBreaker, AdaptiveConcurrencyLimiter concurrencyLimiter,
+                         UpstreamProperties.Retry retrySettings, RetryBudget retryBudget, HedgingPolicy hedgingPolicy) {
+        this.name = name;
+        this.circuitBreaker = circuitBreaker;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.retrySettings = retrySettings;
+        this.retryBudget = retryBudget;
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    /**
+     * Protects every attempt of the call, hedges slow attempts when enabled, and retries failed
+     * attempts with jittered backoff as long as the upstream's retry budget allows it.
+     * When the request has a {@link Deadline}, no attempt outlives it.
+     */
+    public <T> Mono<T> withRetries(Mono<T> attempt) {
+        return Mono.deferContextual(contextView -> {
+            retryBudget.onRequest();
+            var deadline = Deadline.from(contextView).orElse(null);
+            var boundedAttempt = Mono.defer(() -> attempt.timeout(attemptTimeout(deadline)));
+            return hedgingPolicy.hedge(protect(boundedAttempt))
+                    .retryWhen(RetryUtil.retrySpec(retrySettings, retryBudget, deadline))
+                    .onErrorMap(ex -> deadline != null && deadline.isExpired() && !(ex instanceof DeadlineExceededException),
+                            ex -> new DeadlineExceededException("Deadline exceeded calling " + name));
+        });
+    }
+
+    private Duration attemptTimeout(Deadline deadline) {
+        var perAttemptTimeout = retrySettings.getPerAttemptTimeout();
+        if (deadline == null) {
+            return perAttemptTimeout;
+        }
+        var remaining = deadline.remaining();
+        return remaining.compareTo(perAttemptTimeout) < 0 ? remaining : perAttemptTimeout;
+    }
+
+    public Retry retrySpec() {
+        return RetryUtil.retrySpec(retrySettings, retryBudget);
+    }
+
+    public Retry reconnectSpec() {
+        return RetryUtil.reconnectSpec(retrySettings);
+    }
+
+    public <T> Mono<T> protect(Mono<T> call) {
+        return Mono.defer(() -> {
+                    if (!concurrencyLimiter.tryAcquire()) {
+                        return Mono.error(new ConcurrencyLimitExceededException("Concurrency limit reached for " + name));
+                    }
+                    var start = System.nanoTime();
+                    return call
+                            .doOnSuccess(value -> concurrencyLimiter.onSuccess(System.nanoTime() - start))
+                            .doOnError(ex -> {
+                                if (isFailure(ex)) {
+                                    concurrencyLimiter.onDropped();
+                                } else {
+                                    concurrencyLimiter.onSuccess(System.nanoTime() - start);
+                                }
+                            })
+                            .doFinally(signalType -> concurrencyLimiter.release());
+                })
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    //4xx responses are the caller's problem and must not trip the breaker or shrink the limit
+    public static boolean isFailure(Throwable ex) {
+        return ex instanceof MoviesInfoServerException
+                || ex instanceof ReviewsServerException
+                || ex instanceof WebClientRequestException
+                || ex instanceof TimeoutException;
+    }
+}
@@ -0,0 +1,59 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multicasts a single upstream movie info stream to every local subscriber. The upstream
+ * connection is opened by the first subscriber and closed once the last one has been gone
+ * for the grace period, so clients reconnecting in between do not reopen it.
+ * Each subscriber gets its own bounded buffer, so a slow subscriber loses events
+ * according to the overflow strategy instead of holding back everybody else.
+ */
+@Component
+public class MovieInfoStreamHub {
+
+    private final Flux<MovieInfo> sharedStream;
+
+    private final int subscriberBufferSize;
+
+    private final BufferOverflowStrategy overflowStrategy;
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    private final Counter droppedEvents;
+
+    public MovieInfoStreamHub(MoviesInfoRestClient moviesInfoRestClient,
+                              @Value("${moviesService.streamGracePeriod:5s}") Duration gracePeriod,
+                              @Value("${moviesService.streamSubscriberBufferSize:256}") int subscriberBufferSize,
+                              @Value("${moviesService.streamOverflowStrategy:DROP_OLDEST}") BufferOverflowStrategy overflowStrategy,
+                              MeterRegistry meterRegistry) {
+        this.sharedStream = moviesInfoRestClient.retreiveMovieInfoStream()
+                .publish()
+                .refCount(1, gracePeriod);
+        this.subscriberBufferSize = subscriberBufferSize;
+        this.overflowStrategy = overflowStrategy;
+        Gauge.builder("movies.stream.subscribers", subscribers, AtomicInteger::get)
+                .register(meterRegistry);
+        this.droppedEvents = Counter.builder("movies.stream.dropped")
+                .description("Stream events dropped for subscribers that could not keep up")
+                .register(meterRegistry);
+    }
+
+    public Flux<MovieInfo> stream() {
+        return sharedStream
+                .onBackpressureBuffer(subscriberBufferSize, dropped -> droppedEvents.increment(), overflowStrategy)
+                .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+                .doFinally(signalType -> subscribers.decrementAndGet());
+    }
+}
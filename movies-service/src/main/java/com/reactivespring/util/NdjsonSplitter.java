@@ -0,0 +1,82 @@
+package com.reactivespring.util;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Re-chunks a stream of NDJSON bytes so that every emitted buffer ends on a line boundary,
+ * without decoding or copying the bytes: complete lines are retained slices of the incoming
+ * buffers, and a line spanning several buffers is joined (a composite buffer on Netty).
+ * Every emitted buffer must be released by the consumer, which writing it to a response does.
+ */
+public class NdjsonSplitter {
+
+    private static final byte NEWLINE = '\n';
+
+    //buffers holding the start of a line whose newline has not arrived yet
+    private final List<DataBuffer> pending = new ArrayList<>();
+
+    private NdjsonSplitter() {
+    }
+
+    public static Flux<DataBuffer> split(Flux<DataBuffer> buffers) {
+        return Flux.defer(() -> {
+                    var splitter = new NdjsonSplitter();
+                    return buffers
+                            .<DataBuffer>handle(splitter::onBuffer)
+                            //a last line without trailing newline
+                            .concatWith(Mono.fromSupplier(splitter::remainder))
+                            .doFinally(signalType -> splitter.releasePending());
+                })
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    private synchronized void onBuffer(DataBuffer buffer, SynchronousSink<DataBuffer> sink) {
+        var lastNewline = lastNewline(buffer);
+        if (lastNewline < 0) {
+            pending.add(buffer);
+            return;
+        }
+        var end = lastNewline + 1;
+        var lines = buffer.retainedSlice(buffer.readPosition(), end - buffer.readPosition());
+        var rest = end < buffer.writePosition() ? buffer.retainedSlice(end, buffer.writePosition() - end) : null;
+        DataBufferUtils.release(buffer);
+
+        pending.add(lines);
+        var frame = join();
+        if (rest != null) {
+            pending.add(rest);
+        }
+        sink.next(frame);
+    }
+
+    private synchronized DataBuffer remainder() {
+        return pending.isEmpty() ? null : join();
+    }
+
+    private DataBuffer join() {
+        var frame = pending.size() == 1 ? pending.get(0) : pending.get(0).factory().join(new ArrayList<>(pending));
+        pending.clear();
+        return frame;
+    }
+
+    private synchronized void releasePending() {
+        pending.forEach(DataBufferUtils::release);
+        pending.clear();
+    }
+
+    private static int lastNewline(DataBuffer buffer) {
+        for (int i = buffer.writePosition() - 1; i >= buffer.readPosition(); i--) {
+            if (buffer.getByte(i) == NEWLINE) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,17 +1,61 @@
 package com.reactivespring.util;
 
-import com.reactivespring.exception.MoviesInfoServerException;
-import com.reactivespring.exception.ReviewsServerException;
-import reactor.core.Exceptions;
+import com.reactivespring.config.UpstreamProperties;
+import com.reactivespring.deadline.Deadline;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.ReviewsClientException;
+import com.reactivespring.resilience.RetryBudget;
+import com.reactivespring.resilience.UpstreamGuard;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class RetryUtil {
 
-    public static Retry retrySpec() {
-        return Retry.fixedDelay(3, Duration.ofSeconds(1))
-                .filter(throwable -> throwable instanceof MoviesInfoServerException || throwable instanceof ReviewsServerException)
-                .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> Exceptions.propagate(retrySignal.failure()));
+    public static Retry retrySpec(UpstreamProperties.Retry settings, RetryBudget retryBudget) {
+        return retrySpec(settings, retryBudget, null);
+    }
+
+    /**
+     * Same as {@link #retrySpec(UpstreamProperties.Retry, RetryBudget)}, but gives up as soon as the
+     * backoff would not leave any time for another attempt before the deadline.
+     */
+    public static Retry retrySpec(UpstreamProperties.Retry settings, RetryBudget retryBudget, Deadline deadline) {
+        return Retry.from(retrySignals -> retrySignals.concatMap(retrySignal -> {
+            var failure = retrySignal.failure();
+            if (!UpstreamGuard.isFailure(failure)
+                    || retrySignal.totalRetries() >= settings.getMaxRetries()) {
+                return Mono.error(failure);
+            }
+            var backoff = fullJitterBackoff(retrySignal.totalRetries(), settings);
+            if ((deadline != null && backoff.compareTo(deadline.remaining()) >= 0)
+                    || !retryBudget.tryAcquireRetry()) {
+                return Mono.error(failure);
+            }
+            return Mono.delay(backoff);
+        }));
+    }
+
+    /**
+     * Reconnects a long-lived stream for as long as it is subscribed. Unlike request retries it has
+     * no retry limit and does not draw from the retry budget, and the backoff starts over once the
+     * stream has delivered again. Only a 4xx, the caller's own problem, ends the stream.
+     */
+    public static Retry reconnectSpec(UpstreamProperties.Retry settings) {
+        return Retry.backoff(Long.MAX_VALUE, settings.getMinBackoff())
+                .maxBackoff(settings.getMaxBackoff())
+                .jitter(0.5)
+                .transientErrors(true)
+                .filter(ex -> !(ex instanceof MoviesInfoClientException) && !(ex instanceof ReviewsClientException));
+    }
+
+    //full jitter spreads the retries of all callers evenly over [0, backoff) instead of synchronized waves
+    static Duration fullJitterBackoff(long retry, UpstreamProperties.Retry settings) {
+        var minBackoff = settings.getMinBackoff().toMillis();
+        var maxBackoff = settings.getMaxBackoff().toMillis();
+        var backoff = Math.min(maxBackoff, minBackoff << Math.min(retry, 30));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(backoff + 1));
     }
 }
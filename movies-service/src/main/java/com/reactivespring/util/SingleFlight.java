@@ -0,0 +1,91 @@
+package com.reactivespring.util;
+
+import com.reactivespring.deadline.Deadline;
+import com.reactivespring.exception.DeadlineExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into a single upstream subscription.
+ * The shared call is cancelled only once every caller has cancelled, and the key is
+ * released as soon as the call terminates, so later callers trigger a fresh call.
+ * The shared call runs under the {@link Deadline} of the caller that started it, and each caller
+ * waits for it only as long as its own deadline allows. A caller that joined with more time left
+ * than the shared call had starts a call of its own once the shared one runs out of time.
+ */
+public class SingleFlight<K, V> {
+
+    private final String name;
+
+    private final ConcurrentMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter calls;
+    private final Counter executions;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.calls = Counter.builder("upstream.singleflight.calls")
+                .description("Calls made through the single-flight layer")
+                .tag("upstream", name)
+                .register(meterRegistry);
+        this.executions = Counter.builder("upstream.singleflight.executions")
+                .description("Calls that actually went to the upstream")
+                .tag("upstream", name)
+                .register(meterRegistry);
+        Gauge.builder("upstream.singleflight.collapse.ratio", this, SingleFlight::collapseRatio)
+                .description("Share of calls served by joining an in-flight call")
+                .tag("upstream", name)
+                .register(meterRegistry);
+    }
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            calls.increment();
+            var shared = share(key, call);
+            var existing = inFlight.putIfAbsent(key, shared);
+            if (existing != null) {
+                return withinDeadline(existing)
+                        .onErrorResume(DeadlineExceededException.class, ex -> Mono.deferContextual(contextView ->
+                                Deadline.from(contextView).map(Deadline::isExpired).orElse(false)
+                                        ? Mono.error(ex)
+                                        : execute(key, call)));
+            }
+            executions.increment();
+            return withinDeadline(shared);
+        });
+    }
+
+    private Mono<V> withinDeadline(Mono<V> shared) {
+        return Mono.deferContextual(contextView -> Deadline.from(contextView)
+                .map(deadline -> shared.timeout(deadline.remaining(),
+                        Mono.error(() -> new DeadlineExceededException("Deadline exceeded waiting for " + name))))
+                .orElse(shared));
+    }
+
+    private Mono<V> share(K key, Supplier<Mono<V>> call) {
+        var self = new AtomicReference<Mono<V>>();
+        Runnable release = () -> inFlight.remove(key, self.get());
+        //the key is released before the callers see the outcome, so a caller calling again starts afresh
+        Mono<V> shared = Mono.defer(call)
+                .doOnTerminate(release)
+                .doOnCancel(release)
+                .flux()
+                .publish()
+                .refCount()
+                .singleOrEmpty();
+        self.set(shared);
+        return shared;
+    }
+
+    private double collapseRatio() {
+        var total = calls.count();
+        return total == 0 ? 0 : 1 - executions.count() / total;
+    }
+}
@@ -1,27 +1,67 @@
 package com.reactivespring.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.github.tomakehurst.wiremock.matching.UrlPattern;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.reactivespring.deadline.Deadline;
 import com.reactivespring.domain.Movie;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.JdkZlibDecoder;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.adapter.JdkFlowAdapter;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureWebTestClient
+@AutoConfigureMetrics
 @AutoConfigureWireMock(port = 8084)
 @TestPropertySource(
         properties = {
                 "restClient.moviesInfoUrl=http://localhost:8084/v1/movieinfos",
                 "restClient.reviewsUrl=http://localhost:8084/v1/reviews",
+                "movieInfoCache.enabled=false",
+                "movieCache.enabled=false",
+                "moviesService.reviewsTimeout=1500ms",
         }
 )
 @ActiveProfiles("test")
@@ -31,6 +71,18 @@ class MoviesControllerIntgTest {
         @Autowired
         WebTestClient webTestClient;
 
+        @Autowired
+        ObjectMapper objectMapper;
+
+        @LocalServerPort
+        int port;
+
+        @BeforeEach
+        void setUp() {
+            //request counts are verified per test
+            WireMock.reset();
+        }
+
         @Test
         void retrieveMovieById() {
               //given
@@ -60,9 +112,106 @@ class MoviesControllerIntgTest {
                           assertEquals(2, responseBody.getReviewList().size());
                           assertEquals("Batman Begins", responseBody.getMovieInfo().getName());
                       });
+
+              //the single-flight call still passes the remaining budget on
+              WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                      .withHeader(Deadline.TIMEOUT_HEADER, matching("[0-9]+")));
         }
 
 
+    @Test
+    void retrieveMovieById_concurrentFetch() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")
+                        .withFixedDelay(1000))
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")
+                        .withFixedDelay(1000))
+        );
+
+        //when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var responseBody = movieEntityExchangeResult.getResponseBody();
+                    assertNotNull(responseBody);
+                    assertEquals(2, responseBody.getReviewList().size());
+                });
+
+        //then
+        //sequential calls would send the second request only after the 1 second answer to the first
+        var movieInfoRequested = firstRequestedAt(urlEqualTo("/v1/movieinfos" + "/" + movieId));
+        var reviewsRequested = firstRequestedAt(urlPathEqualTo("/v1/reviews"));
+        assertTrue(Math.abs(movieInfoRequested - reviewsRequested) < 1000,
+                "requests " + Math.abs(movieInfoRequested - reviewsRequested) + "ms apart");
+    }
+
+    private static long firstRequestedAt(UrlPattern urlPattern) {
+        return WireMock.findAll(getRequestedFor(urlPattern)).stream()
+                .mapToLong(request -> request.getLoggedDate().getTime())
+                .min()
+                .orElseThrow();
+    }
+
+
+    @Test
+    void retrieveMoviesByIds() {
+        //given
+        stubFor(get(urlPathEqualTo("/v1/movieinfos"))
+                .withQueryParam("ids", equalTo("2,1,3"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfos.json"))
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("movieInfoIds", equalTo("2,1,3"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json"))
+        );
+
+        var moviesFlux = webTestClient
+                .get()
+                .uri("/v1/movies?ids=2,1,3,1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Movie.class)
+                .getResponseBody();
+
+        StepVerifier.create(moviesFlux)
+                .assertNext(movie -> {
+                    assertEquals("The Dark Knight", movie.getMovieInfo().getName());
+                    assertEquals(0, movie.getReviewList().size());
+                })
+                .assertNext(movie -> {
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                    assertEquals(2, movie.getReviewList().size());
+                })
+                .verifyComplete();
+
+        //the remaining budget of the request is passed on to the upstreams
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/movieinfos"))
+                .withHeader(Deadline.TIMEOUT_HEADER, matching("[0-9]+")));
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews"))
+                .withHeader(Deadline.TIMEOUT_HEADER, matching("[0-9]+")));
+    }
+
+
     @Test
     void retrieveMovieById_404() {
         //given
@@ -171,10 +320,459 @@ class MoviesControllerIntgTest {
                 .uri("/v1/movies/{id}", movieId)
                 .exchange()
                 .expectStatus()
-                .is5xxServerError()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var responseBody = movieEntityExchangeResult.getResponseBody();
+                    assertNotNull(responseBody);
+                    assertTrue(responseBody.isReviewsDegraded());
+                    assertEquals("Batman Begins", responseBody.getMovieInfo().getName());
+                });
+
+        //retried within the reviews budget before giving up on them
+        WireMock.verify(moreThan(1), getRequestedFor(urlPathMatching("/v1/reviews*")));
+    }
+
+    @Test
+    void retrieveMovieById_reviewsConnectionFailure() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json"))
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withFault(Fault.CONNECTION_RESET_BY_PEER))
+        );
+
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var responseBody = movieEntityExchangeResult.getResponseBody();
+                    assertNotNull(responseBody);
+                    assertTrue(responseBody.isReviewsDegraded());
+                    assertEquals(0, responseBody.getReviewList().size());
+                });
+    }
+
+    @Test
+    void retrieveMovieById_deadlineExceeded() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")
+                        .withFixedDelay(1000))
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json"))
+        );
+
+        //when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .header(Deadline.TIMEOUT_HEADER, "300")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+
+        //then
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/movieinfos" + "/" + movieId)));
+    }
+
+    @Test
+    void retrieveMovieById_reviewsDegraded() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json"))
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")
+                        .withFixedDelay(3000))
+        );
+
+        //when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var responseBody = movieEntityExchangeResult.getResponseBody();
+                    assertNotNull(responseBody);
+                    assertEquals("Batman Begins", responseBody.getMovieInfo().getName());
+                    assertEquals(0, responseBody.getReviewList().size());
+                    assertTrue(responseBody.isReviewsDegraded());
+                });
+    }
+
+    @Test
+    void retrieveEnrichedMovieStream() {
+        //given
+        stubFor(get(urlEqualTo("/v1/movieinfos/stream"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/x-ndjson")
+                        .withBody("{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005}\n"
+                                + "{\"movieInfoId\":\"2\",\"name\":\"The Dark Knight\",\"year\":2008}\n"))
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .withQueryParam("movieInfoIds", equalTo("1,2"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json"))
+        );
+
+        //when
+        var movieFlux = webTestClient
+                .get()
+                .uri("/v1/movies/stream?enriched=true")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Movie.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(movieFlux)
+                .assertNext(movie -> {
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                    assertEquals(2, movie.getReviewList().size());
+                })
+                .assertNext(movie -> {
+                    assertEquals("The Dark Knight", movie.getMovieInfo().getName());
+                    assertEquals(0, movie.getReviewList().size());
+                })
+                .verifyComplete();
+
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+
+    @Test
+    void retrieveEnrichedMovieStream_outlivesRequestDeadline() {
+        //given
+        stubFor(get(urlEqualTo("/v1/movieinfos/stream"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/x-ndjson")
+                        .withBody("{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005}\n"
+                                + "{\"movieInfoId\":\"2\",\"name\":\"The Dark Knight\",\"year\":2008}\n")
+                        .withChunkedDribbleDelay(2, 1500))
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json"))
+        );
+
+        //when
+        var movieFlux = webTestClient
+                .get()
+                .uri("/v1/movies/stream?enriched=true")
+                .header(Deadline.TIMEOUT_HEADER, "300")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Movie.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(movieFlux)
+                .assertNext(movie -> {
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                    assertFalse(movie.isReviewsDegraded());
+                })
+                .assertNext(movie -> {
+                    assertEquals("The Dark Knight", movie.getMovieInfo().getName());
+                    assertFalse(movie.isReviewsDegraded());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void relayMovieInfoStream() {
+        //given
+        var events = "{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005}\n"
+                + "{\"movieInfoId\":\"2\",\"name\":\"The Dark Knight\",\"year\":2008}\n";
+        stubFor(get(urlEqualTo("/v1/movieinfos/stream"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/x-ndjson")
+                        .withBody(events))
+        );
+
+        //then
+        webTestClient
+                .get()
+                .uri("/v1/movies/stream?raw=true")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .isEqualTo(events);
+    }
+
+    @Test
+    void relayMovieInfoStream_reconnectsPastRetryLimit() {
+        //given
+        //more drops in a row than a request may retry, the stream keeps reconnecting regardless
+        var drops = 5;
+        for (var drop = 0; drop < drops; drop++) {
+            stubFor(get(urlEqualTo("/v1/movieinfos/stream"))
+                    .inScenario("stream reconnect")
+                    .whenScenarioStateIs(drop == 0 ? Scenario.STARTED : "dropped " + drop)
+                    .willSetStateTo("dropped " + (drop + 1))
+                    .willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER))
+            );
+        }
+        var events = "{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005}\n";
+        stubFor(get(urlEqualTo("/v1/movieinfos/stream"))
+                .inScenario("stream reconnect")
+                .whenScenarioStateIs("dropped " + drops)
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/x-ndjson")
+                        .withBody(events))
+        );
+
+        //then
+        webTestClient
+                .get()
+                .uri("/v1/movies/stream?raw=true")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
                 .expectBody(String.class)
-                .isEqualTo("Server exception in ReviewsService Review service unavailable");
+                .isEqualTo(events);
+
+        WireMock.verify(drops + 1, getRequestedFor(urlEqualTo("/v1/movieinfos/stream")));
+    }
+
+    @Test
+    void retrieveMovieSummaryById() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json"))
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews/summary"))
+                .withQueryParam("movieInfoId", equalTo(movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"movieInfoId\":1,\"count\":2,\"averageRating\":8.5,\"ratingHistogram\":{\"8\":1,\"9\":1}}"))
+        );
+
+        //when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}?reviews=summary", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.movieInfo.name").isEqualTo("Batman Begins")
+                .jsonPath("$.reviewSummary.count").isEqualTo(2)
+                .jsonPath("$.reviewSummary.averageRating").isEqualTo(8.5)
+                .jsonPath("$.reviewSummary.ratingHistogram.9").isEqualTo(1)
+                .jsonPath("$.reviewList").doesNotExist();
+
+        WireMock.verify(0, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
 
-        WireMock.verify(4, getRequestedFor(urlPathMatching("/v1/reviews*")));
+    @Test
+    void retrieveMovieById_notModified() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json"))
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json"))
+        );
+
+        var eTag = webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Movie.class)
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(eTag);
+
+        //then
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+    }
+
+    @Test
+    void retrieveMovieById_gzip() throws IOException, InterruptedException {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json"))
+        );
+
+        //enough reviews for the movie to be over the 1KB compression threshold
+        var reviews = IntStream.rangeClosed(1, 20)
+                .mapToObj(reviewId -> "{\"reviewId\":\"" + reviewId + "\",\"movieInfoId\":1,"
+                        + "\"comment\":\"Awesome Movie, watched it again\",\"rating\":9.0}")
+                .collect(Collectors.joining(",", "[", "]"));
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(reviews))
+        );
+
+        //when
+        var response = getGzip("/v1/movies/" + movieId, MediaType.APPLICATION_JSON, HttpResponse.BodyHandlers.ofByteArray());
+
+        //then
+        assertEquals(200, response.statusCode());
+        assertEquals(Optional.of("gzip"), response.headers().firstValue(HttpHeaders.CONTENT_ENCODING));
+        var movie = objectMapper.readValue(new GZIPInputStream(new ByteArrayInputStream(response.body())), Movie.class);
+        assertEquals("Batman Begins", movie.getMovieInfo().getName());
+        assertEquals(20, movie.getReviewList().size());
+    }
+
+    @Test
+    void relayMovieInfoStream_gzipFlushesPerElement() throws IOException, InterruptedException {
+        //given
+        //the second event comes two seconds after the first
+        stubFor(get(urlEqualTo("/v1/movieinfos/stream"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/x-ndjson")
+                        .withBody("{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005}\n"
+                                + "{\"movieInfoId\":\"2\",\"name\":\"The Dark Knight\",\"year\":2008}\n")
+                        .withChunkedDribbleDelay(2, 4000))
+        );
+
+        //when
+        var response = getGzip("/v1/movies/stream?raw=true", MediaType.APPLICATION_NDJSON, HttpResponse.BodyHandlers.ofPublisher());
+
+        //then
+        assertEquals(Optional.of("gzip"), response.headers().firstValue(HttpHeaders.CONTENT_ENCODING));
+        //each part of the body inflates on its own, without waiting for the end of the stream
+        var inflater = new EmbeddedChannel(new JdkZlibDecoder(ZlibWrapper.GZIP));
+        var inflated = JdkFlowAdapter.flowPublisherToFlux(response.body())
+                .map(buffers -> inflate(inflater, buffers))
+                .filter(text -> !text.isEmpty());
+        StepVerifier.create(inflated.timeout(Mono.delay(Duration.ofMillis(1000)), text -> Mono.never()))
+                .assertNext(text -> {
+                    assertTrue(text.contains("Batman Begins"));
+                    assertFalse(text.contains("The Dark Knight"));
+                })
+                .assertNext(text -> assertTrue(text.contains("The Dark Knight")))
+                .verifyComplete();
+    }
+
+    /**
+     * The WebTestClient connector leaves compression off and drops Accept-Encoding, so compressed
+     * responses are fetched with the JDK client instead.
+     */
+    private <T> HttpResponse<T> getGzip(String path, MediaType accept, HttpResponse.BodyHandler<T> bodyHandler)
+            throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header(HttpHeaders.ACCEPT, accept.toString())
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build();
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build()
+                .send(request, bodyHandler);
+    }
+
+    private String inflate(EmbeddedChannel inflater, List<ByteBuffer> buffers) {
+        inflater.writeInbound(Unpooled.wrappedBuffer(buffers.toArray(ByteBuffer[]::new)));
+        var text = new StringBuilder();
+        ByteBuf inflated;
+        while ((inflated = inflater.readInbound()) != null) {
+            text.append(inflated.toString(StandardCharsets.UTF_8));
+            inflated.release();
+        }
+        return text.toString();
+    }
+
+    @Test
+    void retrieveMovieById_metrics() {
+        //given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos" + "/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json"))
+        );
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json"))
+        );
+
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        //then
+        webTestClient
+                .get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(String.class)
+                .value(scrape -> {
+                    assertTrue(scrape.contains("upstream_requests_seconds_bucket{"));
+                    assertTrue(scrape.matches("(?s).*upstream_requests_seconds_count\\{[^}]*operation=\"movieInfoById\"[^}]*status=\"2xx\"[^}]*upstream=\"movies-info\".*"));
+                    assertTrue(scrape.matches("(?s).*upstream_response_size_bytes_count\\{[^}]*upstream=\"reviews\".*"));
+                    assertTrue(scrape.matches("(?s).*upstream_request_size_bytes_count\\{[^}]*upstream=\"reviews\".*"));
+                    assertTrue(scrape.matches("(?s).*http_server_response_size_bytes_count\\{[^}]*uri=\"/v1/movies/\\{id}\".*"));
+                });
     }
-}
\ No newline at end of file
+}
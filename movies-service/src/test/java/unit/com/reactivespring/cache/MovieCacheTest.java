@@ -0,0 +1,151 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MovieCacheTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    AtomicLong nanos = new AtomicLong();
+
+    MovieCache movieCache = new MovieCache(true, 100, Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofHours(1),
+            meterRegistry, nanos::get);
+
+    AtomicInteger compositions = new AtomicInteger();
+
+    Mono<Movie> compose() {
+        return Mono.fromCallable(() -> movie("Batman Begins " + compositions.incrementAndGet()));
+    }
+
+    static Movie movie(String name) {
+        return new Movie(new MovieInfo("abc", name, 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15")),
+                new ArrayList<>());
+    }
+
+    void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    void assertMovie(String expectedName, Mono<Movie> movie) {
+        StepVerifier.create(movie)
+                .assertNext(m -> assertEquals(expectedName, m.getMovieInfo().getName()))
+                .verifyComplete();
+    }
+
+    @Test
+    void movie_freshEntryServedFromCache() {
+        //when
+        assertMovie("Batman Begins 1", movieCache.movie("abc", this::compose));
+        advance(Duration.ofSeconds(29));
+
+        //then
+        assertMovie("Batman Begins 1", movieCache.movie("abc", this::compose));
+        assertEquals(1, compositions.get());
+    }
+
+    @Test
+    void movie_staleEntryServedWhileRevalidating() {
+        //given
+        assertMovie("Batman Begins 1", movieCache.movie("abc", this::compose));
+        advance(Duration.ofMinutes(1));
+
+        //when
+        assertMovie("Batman Begins 1", movieCache.movie("abc", this::compose));
+
+        //then
+        assertEquals(2, compositions.get());
+        assertMovie("Batman Begins 2", movieCache.movie("abc", this::compose));
+        assertEquals(1, meterRegistry.get("movie.cache.stale").tag("reason", "revalidating").counter().count());
+    }
+
+    @Test
+    void movie_singleRevalidationForConcurrentStaleHits() {
+        //given
+        assertMovie("Batman Begins 1", movieCache.movie("abc", this::compose));
+        advance(Duration.ofMinutes(1));
+        var revalidations = new AtomicInteger();
+        Mono<Movie> slowCompose = Mono.fromCallable(revalidations::incrementAndGet)
+                .then(Mono.<Movie>never());
+
+        //when
+        for (var i = 0; i < 5; i++) {
+            assertMovie("Batman Begins 1", movieCache.movie("abc", () -> slowCompose));
+        }
+
+        //then
+        assertEquals(1, revalidations.get());
+    }
+
+    @Test
+    void movie_staleEntryServedOnUpstreamError() {
+        //given
+        assertMovie("Batman Begins 1", movieCache.movie("abc", this::compose));
+        advance(Duration.ofMinutes(10));
+
+        //then
+        assertMovie("Batman Begins 1",
+                movieCache.movie("abc", () -> Mono.error(new MoviesInfoServerException("Server exception in MoviesInfoService"))));
+        assertEquals(1, meterRegistry.get("movie.cache.stale").tag("reason", "error").counter().count());
+    }
+
+    @Test
+    void movie_clientErrorNotMaskedByStaleEntry() {
+        //given
+        assertMovie("Batman Begins 1", movieCache.movie("abc", this::compose));
+        advance(Duration.ofMinutes(10));
+
+        //then
+        StepVerifier.create(movieCache.movie("abc",
+                        () -> Mono.error(new MoviesInfoClientException("Movie with movieInfoId abc doesn't exists.", 404))))
+                .expectError(MoviesInfoClientException.class)
+                .verify();
+    }
+
+    @Test
+    void movie_degradedMovieNotCached() {
+        //given
+        Mono<Movie> degraded = Mono.fromCallable(() -> {
+            compositions.incrementAndGet();
+            var movie = movie("Batman Begins");
+            movie.setReviewsDegraded(true);
+            return movie;
+        });
+
+        //when
+        movieCache.movie("abc", () -> degraded).block();
+        movieCache.movie("abc", () -> degraded).block();
+
+        //then
+        assertEquals(2, compositions.get());
+    }
+
+    @Test
+    void invalidate() {
+        //given
+        assertMovie("Batman Begins 1", movieCache.movie("abc", this::compose));
+        assertMovie("Batman Begins 2", movieCache.movieSummary("abc", this::compose));
+
+        //when
+        movieCache.invalidate("abc");
+
+        //then
+        assertMovie("Batman Begins 3", movieCache.movie("abc", this::compose));
+        assertMovie("Batman Begins 4", movieCache.movieSummary("abc", this::compose));
+    }
+}
@@ -0,0 +1,70 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.stream.MovieInfoStreamHub;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MovieInfoCacheRefresherTest {
+
+    MovieInfoStreamHub movieInfoStreamHub = mock(MovieInfoStreamHub.class);
+
+    MovieInfoCache movieInfoCache = new MovieInfoCache(true, 100, Duration.ofMinutes(10), new SimpleMeterRegistry());
+
+    MovieCache movieCache = new MovieCache(false, 100, Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofHours(1),
+            new SimpleMeterRegistry());
+
+    MovieInfoCacheRefresher movieInfoCacheRefresher = new MovieInfoCacheRefresher(movieInfoStreamHub, movieInfoCache, movieCache);
+
+    @AfterEach
+    void tearDown() {
+        movieInfoCacheRefresher.stop();
+    }
+
+    @Test
+    void start_streamEventsRefreshCache() {
+        //given
+        var stream = Sinks.many().multicast().<MovieInfo>onBackpressureBuffer();
+        when(movieInfoStreamHub.stream()).thenReturn(stream.asFlux());
+        movieInfoCache.put(new MovieInfo("abc", "Batman Begins",
+                2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15")));
+
+        //when
+        movieInfoCacheRefresher.start();
+        stream.tryEmitNext(new MovieInfo("abc", "Batman Begins1",
+                2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15")));
+
+        //then
+        assertEquals("Batman Begins1", movieInfoCache.get("abc").getName());
+    }
+
+    @Test
+    void start_deleteEventsEvictCache() {
+        //given
+        var stream = Sinks.many().multicast().<MovieInfo>onBackpressureBuffer();
+        when(movieInfoStreamHub.stream()).thenReturn(stream.asFlux());
+        movieInfoCache.put(new MovieInfo("abc", "Batman Begins",
+                2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15")));
+        var tombstone = new MovieInfo();
+        tombstone.setMovieInfoId("abc");
+        tombstone.setDeleted(true);
+
+        //when
+        movieInfoCacheRefresher.start();
+        stream.tryEmitNext(tombstone);
+
+        //then
+        assertNull(movieInfoCache.get("abc"));
+    }
+}
@@ -0,0 +1,76 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MovieInfoCacheTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    MovieInfo movieInfo = new MovieInfo("abc", "Batman Begins",
+            2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+
+    @Test
+    void getAndPut() {
+        //given
+        var movieInfoCache = new MovieInfoCache(true, 100, Duration.ofMinutes(10), meterRegistry);
+
+        //when
+        assertNull(movieInfoCache.get("abc"));
+        movieInfoCache.put(movieInfo);
+
+        //then
+        assertEquals("Batman Begins", movieInfoCache.get("abc").getName());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void put_replacesExistingEntry() {
+        //given
+        var movieInfoCache = new MovieInfoCache(true, 100, Duration.ofMinutes(10), meterRegistry);
+        movieInfoCache.put(movieInfo);
+
+        //when
+        movieInfoCache.put(new MovieInfo("abc", "Batman Begins1",
+                2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15")));
+
+        //then
+        assertEquals("Batman Begins1", movieInfoCache.get("abc").getName());
+    }
+
+    @Test
+    void put_keepsNewerVersion() {
+        //given
+        var movieInfoCache = new MovieInfoCache(true, 100, Duration.ofMinutes(10), meterRegistry);
+        movieInfoCache.put(new MovieInfo("abc", "Batman Begins1",
+                2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"), 2L));
+
+        //when
+        movieInfoCache.put(new MovieInfo("abc", "Batman Begins",
+                2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"), 1L));
+
+        //then
+        assertEquals("Batman Begins1", movieInfoCache.get("abc").getName());
+    }
+
+    @Test
+    void disabled() {
+        //given
+        var movieInfoCache = new MovieInfoCache(false, 100, Duration.ofMinutes(10), meterRegistry);
+
+        //when
+        movieInfoCache.put(movieInfo);
+
+        //then
+        assertNull(movieInfoCache.get("abc"));
+    }
+}
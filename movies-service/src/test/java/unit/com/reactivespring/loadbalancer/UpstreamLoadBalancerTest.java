@@ -0,0 +1,177 @@
+package com.reactivespring.loadbalancer;
+
+import com.reactivespring.config.UpstreamProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamLoadBalancerTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    AtomicReference<HttpStatus> healthStatus = new AtomicReference<>(HttpStatus.OK);
+
+    WebClient healthCheckClient = WebClient.builder()
+            .exchangeFunction(request -> Mono.just(ClientResponse.create(healthStatus.get()).build()))
+            .build();
+
+    UpstreamLoadBalancer loadBalancer;
+
+    UpstreamLoadBalancer loadBalancer(Duration baseEjectionTime, String... urls) {
+        var settings = new UpstreamProperties.LoadBalancer();
+        settings.setConsecutiveErrors(3);
+        settings.setBaseEjectionTime(baseEjectionTime);
+        settings.setHealthCheckInterval(Duration.ofHours(1));
+        loadBalancer = new UpstreamLoadBalancer("test", List.of(urls), settings, healthCheckClient, meterRegistry);
+        return loadBalancer;
+    }
+
+    @AfterEach
+    void tearDown() {
+        loadBalancer.dispose();
+    }
+
+    @Test
+    void choose_prefersFewerOutstandingCalls() {
+        //given
+        var loadBalancer = loadBalancer(Duration.ofSeconds(30), "http://host1:8080/v1/movieinfos", "http://host2:8080/v1/movieinfos");
+        var busy = loadBalancer.getEndpoints().get(0);
+        busy.outstanding.set(5);
+
+        //then
+        for (var i = 0; i < 10; i++) {
+            assertEquals("host2:8080", loadBalancer.choose().authority());
+        }
+    }
+
+    @Test
+    void onError_consecutiveErrorsEject() {
+        //given
+        var loadBalancer = loadBalancer(Duration.ofSeconds(30), "http://host1:8080", "http://host2:8080", "http://host3:8080");
+        var failing = loadBalancer.getEndpoints().get(0);
+
+        //when
+        loadBalancer.onError(failing);
+        loadBalancer.onError(failing);
+        loadBalancer.onSuccess(failing, 1_000_000);
+        loadBalancer.onError(failing);
+        loadBalancer.onError(failing);
+        assertFalse(failing.isEjected());
+        loadBalancer.onError(failing);
+
+        //then
+        assertTrue(failing.isEjected());
+        for (var i = 0; i < 20; i++) {
+            assertNotSame(failing, loadBalancer.choose());
+        }
+        assertEquals(1, meterRegistry.get("upstream.lb.ejections").counter().count());
+    }
+
+    @Test
+    void onError_neverEjectsBeyondMaxEjectionPercent() {
+        //given
+        var loadBalancer = loadBalancer(Duration.ofSeconds(30), "http://host1:8080", "http://host2:8080");
+        var endpoints = loadBalancer.getEndpoints();
+
+        //when
+        for (var i = 0; i < 3; i++) {
+            loadBalancer.onError(endpoints.get(0));
+            loadBalancer.onError(endpoints.get(1));
+        }
+
+        //then
+        assertTrue(endpoints.get(0).isEjected());
+        assertFalse(endpoints.get(1).isEjected());
+        assertEquals("host2:8080", loadBalancer.choose().authority());
+    }
+
+    @Test
+    void onSuccess_latencyOutlierEjected() {
+        //given
+        var loadBalancer = loadBalancer(Duration.ofSeconds(30), "http://host1:8080", "http://host2:8080", "http://host3:8080");
+        var endpoints = loadBalancer.getEndpoints();
+
+        //when
+        loadBalancer.onSuccess(endpoints.get(1), Duration.ofMillis(20).toNanos());
+        loadBalancer.onSuccess(endpoints.get(2), Duration.ofMillis(20).toNanos());
+        loadBalancer.onSuccess(endpoints.get(0), Duration.ofSeconds(3).toNanos());
+
+        //then
+        assertTrue(endpoints.get(0).isEjected());
+    }
+
+    @Test
+    void onSuccess_uniformlySlowUpstreamNotEjected() {
+        //given
+        var loadBalancer = loadBalancer(Duration.ofSeconds(30), "http://host1:8080", "http://host2:8080", "http://host3:8080");
+        var endpoints = loadBalancer.getEndpoints();
+
+        //when
+        endpoints.forEach(endpoint -> loadBalancer.onSuccess(endpoint, Duration.ofSeconds(3).toNanos()));
+
+        //then
+        endpoints.forEach(endpoint -> assertFalse(endpoint.isEjected()));
+    }
+
+    @Test
+    void checkEjected_reinstatedOnlyWhenHealthy() {
+        //given
+        var loadBalancer = loadBalancer(Duration.ZERO, "http://host1:8080", "http://host2:8080");
+        var failing = loadBalancer.getEndpoints().get(0);
+        for (var i = 0; i < 3; i++) {
+            loadBalancer.onError(failing);
+        }
+        assertTrue(failing.isEjected());
+
+        //when
+        healthStatus.set(HttpStatus.SERVICE_UNAVAILABLE);
+        StepVerifier.create(loadBalancer.checkEjected()).verifyComplete();
+        assertTrue(failing.isEjected());
+
+        healthStatus.set(HttpStatus.OK);
+        StepVerifier.create(loadBalancer.checkEjected()).verifyComplete();
+
+        //then
+        assertFalse(failing.isEjected());
+    }
+
+    @Test
+    void filter_routesToChosenEndpoint() {
+        //given
+        var loadBalancer = loadBalancer(Duration.ofSeconds(30), "http://host1:8080/v1/movieinfos", "http://host2:9090/v1/movieinfos");
+        loadBalancer.getEndpoints().get(0).outstanding.set(1);
+        var filter = new LoadBalancerExchangeFilterFunction(loadBalancer);
+        var request = ClientRequest.create(HttpMethod.GET, URI.create("http://host1:8080/v1/movieinfos?ids=1,2")).build();
+        var routedUrl = new AtomicReference<URI>();
+
+        //when
+        var response = filter.filter(request, routed -> {
+            routedUrl.set(routed.url());
+            return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+        });
+
+        //then
+        StepVerifier.create(response)
+                .expectNextCount(1)
+                .verifyComplete();
+        assertEquals(URI.create("http://host2:9090/v1/movieinfos?ids=1,2"), routedUrl.get());
+        assertEquals(0, loadBalancer.getEndpoints().get(1).outstanding.get());
+    }
+}
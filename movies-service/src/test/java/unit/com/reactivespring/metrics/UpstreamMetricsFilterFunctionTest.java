@@ -0,0 +1,116 @@
+package com.reactivespring.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UpstreamMetricsFilterFunctionTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    UpstreamMetricsFilterFunction filter = new UpstreamMetricsFilterFunction("reviews", meterRegistry);
+
+    BodyInserter.Context context = new BodyInserter.Context() {
+        @Override
+        public List<HttpMessageWriter<?>> messageWriters() {
+            return ExchangeStrategies.withDefaults().messageWriters();
+        }
+
+        @Override
+        public Optional<ServerHttpRequest> serverRequest() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Map<String, Object> hints() {
+            return Map.of();
+        }
+    };
+
+    @Test
+    void filter_recordsBytesOncePerCall() {
+        //given
+        var request = ClientRequest.create(HttpMethod.POST, URI.create("http://localhost:8081/v1/reviews"))
+                .body(BodyInserters.fromValue("Awesome Movie"))
+                .build();
+        var bufferFactory = new DefaultDataBufferFactory();
+        var chunks = Flux.just("[{\"reviewId\":\"1\",", "\"comment\":\"Awesome Movie\",", "\"rating\":9.0}]")
+                .<DataBuffer>map(chunk -> bufferFactory.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+
+        //when
+        var response = filter.filter(request, routed -> routed.body()
+                        .insert(new MockClientHttpRequest(routed.method(), routed.url()), context)
+                        .then(Mono.just(ClientResponse.create(HttpStatus.OK).body(chunks).build())))
+                .flatMap(clientResponse -> clientResponse.bodyToMono(String.class));
+
+        //then
+        StepVerifier.create(response)
+                .expectNextCount(1)
+                .verifyComplete();
+        var requestSize = meterRegistry.get("upstream.request.size").summary();
+        assertEquals(1, requestSize.count());
+        assertEquals("Awesome Movie".length(), requestSize.totalAmount());
+        var responseSize = meterRegistry.get("upstream.response.size").summary();
+        assertEquals(1, responseSize.count());
+        assertEquals("[{\"reviewId\":\"1\",\"comment\":\"Awesome Movie\",\"rating\":9.0}]".length(), responseSize.totalAmount());
+    }
+
+    @Test
+    void filter_timesCallOnceWhenCancelledAfterResponse() {
+        //given
+        var request = ClientRequest.create(HttpMethod.GET, URI.create("http://localhost:8081/v1/reviews")).build();
+
+        //when
+        //take cancels the call as soon as the response is in, before it completes
+        StepVerifier.create(filter.filter(request, routed -> Mono.just(ClientResponse.create(HttpStatus.OK).build()))
+                        .flux()
+                        .take(1))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        //then
+        var timers = meterRegistry.get("upstream.requests").timers();
+        assertEquals(1, timers.size());
+        assertEquals(1, timers.iterator().next().count());
+        assertEquals("2xx", timers.iterator().next().getId().getTag("status"));
+    }
+
+    @Test
+    void filter_timesCancelledCall() {
+        //given
+        var request = ClientRequest.create(HttpMethod.GET, URI.create("http://localhost:8081/v1/reviews")).build();
+
+        //when
+        StepVerifier.create(filter.filter(request, routed -> Mono.never()))
+                .thenCancel()
+                .verify();
+
+        //then
+        var timer = meterRegistry.get("upstream.requests").timer();
+        assertEquals(1, timer.count());
+        assertEquals("CANCELLED", timer.getId().getTag("status"));
+        assertEquals(0, meterRegistry.get("upstream.requests.inflight").gauge().value());
+    }
+}
@@ -0,0 +1,90 @@
+package com.reactivespring.resilience;
+
+import com.reactivespring.config.UpstreamProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    AdaptiveConcurrencyLimiter limiter(int initialLimit) {
+        var settings = new UpstreamProperties.ConcurrencyLimit();
+        settings.setInitialLimit(initialLimit);
+        settings.setMinLimit(1);
+        settings.setMaxLimit(10);
+        settings.setBackoffRatio(0.5);
+        settings.setLatencyThreshold(Duration.ofMillis(100));
+        return new AdaptiveConcurrencyLimiter("test", settings, meterRegistry);
+    }
+
+    @Test
+    void tryAcquire_rejectsAboveLimit() {
+        var limiter = limiter(2);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(1, meterRegistry.get("upstream.concurrency.rejected").counter().count());
+    }
+
+    @Test
+    void onSuccess_increasesLimitWhenSaturated() {
+        var limiter = limiter(2);
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+
+        limiter.onSuccess(Duration.ofMillis(10).toNanos());
+        limiter.onSuccess(Duration.ofMillis(10).toNanos());
+        assertEquals(2, limiter.getLimit());
+        limiter.onSuccess(Duration.ofMillis(10).toNanos());
+
+        assertEquals(3, limiter.getLimit());
+        assertEquals(3, meterRegistry.get("upstream.concurrency.limit").gauge().value());
+    }
+
+    @Test
+    void onSuccess_increasesByAboutOnePerLimitSuccesses() {
+        var limiter = limiter(8);
+        for (var i = 0; i < 8; i++) {
+            limiter.tryAcquire();
+        }
+
+        //a full round trip of successes at the limit
+        for (var i = 0; i < 8; i++) {
+            limiter.onSuccess(Duration.ofMillis(10).toNanos());
+        }
+
+        assertEquals(8, limiter.getLimit());
+        limiter.onSuccess(Duration.ofMillis(10).toNanos());
+        assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    void onSuccess_slowCallDecreasesLimit() {
+        var limiter = limiter(8);
+
+        limiter.onSuccess(Duration.ofMillis(500).toNanos());
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void onDropped_neverBelowMinLimit() {
+        var limiter = limiter(2);
+
+        limiter.onDropped();
+        limiter.onDropped();
+
+        assertEquals(1, limiter.getLimit());
+    }
+}
@@ -0,0 +1,123 @@
+package com.reactivespring.resilience;
+
+import com.reactivespring.config.UpstreamProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgingPolicyTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    HedgingPolicy hedgingPolicy(boolean enabled, double maxTokens) {
+        var settings = new UpstreamProperties.Hedge();
+        settings.setEnabled(enabled);
+        settings.setInitialDelay(Duration.ofMillis(50));
+        settings.setMaxTokens(maxTokens);
+        return new HedgingPolicy("test", settings, meterRegistry);
+    }
+
+    @Test
+    void hedge_secondAttemptWinsAndFirstIsCancelled() {
+        //given
+        var attempts = new AtomicInteger();
+        var firstCancelled = new AtomicBoolean();
+        var attempt = Mono.defer(() -> attempts.incrementAndGet() == 1
+                ? Mono.just("slow").delayElement(Duration.ofSeconds(5)).doOnCancel(() -> firstCancelled.set(true))
+                : Mono.just("fast"));
+
+        //then
+        StepVerifier.create(hedgingPolicy(true, 10).hedge(attempt))
+                .expectNext("fast")
+                .verifyComplete();
+        assertEquals(2, attempts.get());
+        assertTrue(firstCancelled.get());
+        assertEquals(1, meterRegistry.get("upstream.hedge.wins").counter().count());
+    }
+
+    @Test
+    void hedge_fastAttemptIsNotHedged() {
+        //given
+        var attempts = new AtomicInteger();
+        var attempt = Mono.fromCallable(() -> "Batman Begins " + attempts.incrementAndGet());
+
+        //then
+        StepVerifier.create(hedgingPolicy(true, 10).hedge(attempt))
+                .expectNext("Batman Begins 1")
+                .verifyComplete();
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void hedge_cappedByBudget() {
+        //given
+        var attempts = new AtomicInteger();
+        var attempt = Mono.fromCallable(attempts::incrementAndGet).delayElement(Duration.ofMillis(200));
+
+        //then
+        StepVerifier.create(hedgingPolicy(true, 0).hedge(attempt))
+                .expectNext(1)
+                .verifyComplete();
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void hedge_losersKeepTheDelayAboveTheSlowMode() {
+        //given
+        //one attempt in seven is slow, so the 90th percentile is the slow mode and hardly any call should be hedged
+        var settings = new UpstreamProperties.Hedge();
+        settings.setEnabled(true);
+        settings.setPercentile(0.9);
+        settings.setInitialDelay(Duration.ofMillis(50));
+        settings.setMaxHedgeRatio(1);
+        settings.setMaxTokens(10_000);
+        var random = new Random(42);
+        var attempt = Mono.defer(() -> Mono.delay(Duration.ofMillis(random.nextInt(7) == 0 ? 100 : 10)));
+        var warmUp = 3000;
+        var measured = 1000;
+        var hedgesBefore = new AtomicReference<Double>();
+
+        //when
+        StepVerifier.withVirtualTime(() -> {
+                    var policy = new HedgingPolicy("test", settings, meterRegistry);
+                    return Flux.range(0, warmUp + measured)
+                            .doOnNext(request -> {
+                                if (request == warmUp) {
+                                    hedgesBefore.set(meterRegistry.get("upstream.hedges").counter().count());
+                                }
+                            })
+                            .concatMap(request -> policy.hedge(attempt));
+                })
+                .thenAwait(Duration.ofHours(1))
+                .expectNextCount(warmUp + measured)
+                .verifyComplete();
+
+        //then
+        var hedgeRate = (meterRegistry.get("upstream.hedges").counter().count() - hedgesBefore.get()) / measured;
+        assertTrue(hedgeRate < 0.05, "hedge rate " + hedgeRate);
+    }
+
+    @Test
+    void hedge_disabled() {
+        //given
+        var attempts = new AtomicInteger();
+        var attempt = Mono.fromCallable(attempts::incrementAndGet).delayElement(Duration.ofMillis(200));
+
+        //then
+        StepVerifier.create(hedgingPolicy(false, 10).hedge(attempt))
+                .expectNext(1)
+                .verifyComplete();
+        assertEquals(1, attempts.get());
+    }
+}
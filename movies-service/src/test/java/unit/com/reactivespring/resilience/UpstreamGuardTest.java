@@ -0,0 +1,145 @@
+package com.reactivespring.resilience;
+
+import com.reactivespring.config.UpstreamProperties;
+import com.reactivespring.exception.ConcurrencyLimitExceededException;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamGuardTest {
+
+    CircuitBreaker circuitBreaker = CircuitBreaker.of("test", CircuitBreakerConfig.custom()
+            .slidingWindowSize(2)
+            .minimumNumberOfCalls(2)
+            .recordException(UpstreamGuard::isFailure)
+            .build());
+
+    AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter("test",
+            new UpstreamProperties.ConcurrencyLimit(), new SimpleMeterRegistry());
+
+    UpstreamProperties.Retry retrySettings = new UpstreamProperties.Retry();
+
+    RetryBudget retryBudget = new RetryBudget("test", 0.1, 2, new SimpleMeterRegistry());
+
+    HedgingPolicy hedgingPolicy = new HedgingPolicy("test", new UpstreamProperties.Hedge(), new SimpleMeterRegistry());
+
+    UpstreamGuard upstreamGuard = new UpstreamGuard("test", circuitBreaker, concurrencyLimiter, retrySettings, retryBudget,
+            hedgingPolicy);
+
+    @Test
+    void protect_openBreakerFailsFast() {
+        //given
+        var calls = new AtomicInteger();
+        var failingCall = Mono.<String>fromCallable(() -> {
+            calls.incrementAndGet();
+            throw new MoviesInfoServerException("Server exception in MoviesInfoService");
+        });
+
+        //when
+        StepVerifier.create(upstreamGuard.protect(failingCall)).expectError(MoviesInfoServerException.class).verify();
+        StepVerifier.create(upstreamGuard.protect(failingCall)).expectError(MoviesInfoServerException.class).verify();
+
+        //then
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        StepVerifier.create(upstreamGuard.protect(failingCall)).expectError(CallNotPermittedException.class).verify();
+        assertEquals(2, calls.get());
+        assertEquals(0, concurrencyLimiter.getInFlight());
+    }
+
+    @Test
+    void protect_clientErrorsDoNotOpenBreaker() {
+        //given
+        var notFoundCall = Mono.<String>error(new MoviesInfoClientException("Movie with movieInfoId abc doesn't exists.", 404));
+
+        //when
+        StepVerifier.create(upstreamGuard.protect(notFoundCall)).expectError(MoviesInfoClientException.class).verify();
+        StepVerifier.create(upstreamGuard.protect(notFoundCall)).expectError(MoviesInfoClientException.class).verify();
+
+        //then
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void withRetries_stopsWhenBudgetExhausted() {
+        //given
+        retrySettings.setMinBackoff(Duration.ofMillis(1));
+        retrySettings.setMaxBackoff(Duration.ofMillis(1));
+        var calls = new AtomicInteger();
+        var failingCall = Mono.<String>fromCallable(() -> {
+            calls.incrementAndGet();
+            throw new MoviesInfoServerException("Server exception in MoviesInfoService");
+        });
+        var upstreamGuard = new UpstreamGuard("test", CircuitBreaker.ofDefaults("test"), concurrencyLimiter,
+                retrySettings, retryBudget, hedgingPolicy);
+
+        //when
+        StepVerifier.create(upstreamGuard.withRetries(failingCall))
+                .expectError(MoviesInfoServerException.class)
+                .verify();
+
+        //then
+        //two tokens allow two retries out of the three configured
+        assertEquals(3, calls.get());
+        assertTrue(retryBudget.getTokens() < 1);
+    }
+
+    @Test
+    void withRetries_clientErrorsNotRetried() {
+        //given
+        var calls = new AtomicInteger();
+        var notFoundCall = Mono.<String>fromCallable(() -> {
+            calls.incrementAndGet();
+            throw new MoviesInfoClientException("Movie with movieInfoId abc doesn't exists.", 404);
+        });
+
+        //when
+        StepVerifier.create(upstreamGuard.withRetries(notFoundCall))
+                .expectError(MoviesInfoClientException.class)
+                .verify();
+
+        //then
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void withRetries_perAttemptTimeout() {
+        //given
+        retrySettings.setPerAttemptTimeout(Duration.ofMillis(50));
+        retrySettings.setMinBackoff(Duration.ofMillis(1));
+        var calls = new AtomicInteger();
+        var slowThenFastCall = Mono.defer(() -> calls.incrementAndGet() == 1
+                ? Mono.just("Batman Begins").delayElement(Duration.ofSeconds(1))
+                : Mono.just("Batman Begins"));
+
+        //then
+        StepVerifier.create(upstreamGuard.withRetries(slowThenFastCall))
+                .expectNext("Batman Begins")
+                .verifyComplete();
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void protect_rejectedAboveConcurrencyLimit() {
+        //given
+        while (concurrencyLimiter.tryAcquire()) {
+            //fill up the limit
+        }
+
+        //then
+        StepVerifier.create(upstreamGuard.protect(Mono.just("Batman Begins")))
+                .expectError(ConcurrencyLimitExceededException.class)
+                .verify();
+    }
+}
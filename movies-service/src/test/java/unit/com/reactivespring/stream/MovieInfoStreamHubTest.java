@@ -0,0 +1,74 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MovieInfoStreamHubTest {
+
+    MoviesInfoRestClient moviesInfoRestClient = mock(MoviesInfoRestClient.class);
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    Sinks.Many<MovieInfo> upstream = Sinks.many().multicast().onBackpressureBuffer();
+
+    AtomicInteger upstreamSubscriptions = new AtomicInteger();
+
+    MovieInfoStreamHub movieInfoStreamHub() {
+        when(moviesInfoRestClient.retreiveMovieInfoStream())
+                .thenReturn(upstream.asFlux().doOnSubscribe(subscription -> upstreamSubscriptions.incrementAndGet()));
+        return new MovieInfoStreamHub(moviesInfoRestClient, Duration.ofMillis(100), 2,
+                BufferOverflowStrategy.DROP_OLDEST, meterRegistry);
+    }
+
+    MovieInfo movieInfo(String name) {
+        return new MovieInfo("abc", name, 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+    }
+
+    @Test
+    void stream_sharesOneUpstreamSubscription() {
+        //given
+        var movieInfoStreamHub = movieInfoStreamHub();
+        var first = movieInfoStreamHub.stream().map(MovieInfo::getName);
+        var second = movieInfoStreamHub.stream().map(MovieInfo::getName);
+
+        //then
+        StepVerifier.create(Flux.merge(first, second))
+                .then(() -> upstream.tryEmitNext(movieInfo("Batman Begins")))
+                .expectNext("Batman Begins", "Batman Begins")
+                .thenCancel()
+                .verify();
+        assertEquals(1, upstreamSubscriptions.get());
+        assertEquals(0, meterRegistry.get("movies.stream.subscribers").gauge().value());
+    }
+
+    @Test
+    void stream_slowSubscriberDropsOldest() {
+        //given
+        var movieInfoStreamHub = movieInfoStreamHub();
+
+        //then
+        StepVerifier.create(movieInfoStreamHub.stream().map(MovieInfo::getName), 0)
+                .then(() -> List.of("Batman Begins", "The Dark Knight", "Dark Knight Rises")
+                        .forEach(name -> upstream.tryEmitNext(movieInfo(name))))
+                .thenRequest(2)
+                .expectNext("The Dark Knight", "Dark Knight Rises")
+                .thenCancel()
+                .verify();
+        assertEquals(1, meterRegistry.get("movies.stream.dropped").counter().count());
+    }
+}
@@ -0,0 +1,61 @@
+package com.reactivespring.util;
+
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NdjsonSplitterTest {
+
+    NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(new UnpooledByteBufAllocator(false));
+
+    NettyDataBuffer buffer(String content) {
+        return bufferFactory.wrap(Unpooled.copiedBuffer(content, StandardCharsets.UTF_8));
+    }
+
+    Consumer<DataBuffer> frame(String expected) {
+        return dataBuffer -> {
+            assertEquals(expected, dataBuffer.toString(StandardCharsets.UTF_8));
+            DataBufferUtils.release(dataBuffer);
+        };
+    }
+
+    @Test
+    void split_onLineBoundaries() {
+        //given
+        var buffers = List.of(buffer("{\"name\":\"Batman"), buffer(" Begins\"}\n{\"name\":"),
+                buffer("\"The Dark Knight\"}\n"), buffer("{\"name\":\"Dark Knight Rises\"}"));
+
+        //then
+        StepVerifier.create(NdjsonSplitter.split(Flux.<DataBuffer>fromIterable(buffers)))
+                .consumeNextWith(frame("{\"name\":\"Batman Begins\"}\n"))
+                .consumeNextWith(frame("{\"name\":\"The Dark Knight\"}\n"))
+                .consumeNextWith(frame("{\"name\":\"Dark Knight Rises\"}"))
+                .verifyComplete();
+        buffers.forEach(buffer -> assertEquals(0, buffer.getNativeBuffer().refCnt()));
+    }
+
+    @Test
+    void split_releasesPartialLineOnCancel() {
+        //given
+        var buffers = List.of(buffer("{\"name\":\"Batman Begins\"}\n{\"name\":"), buffer("\"The Dark"));
+
+        //then
+        StepVerifier.create(NdjsonSplitter.split(Flux.<DataBuffer>fromIterable(buffers).concatWith(Flux.never())))
+                .consumeNextWith(frame("{\"name\":\"Batman Begins\"}\n"))
+                .thenCancel()
+                .verify();
+        buffers.forEach(buffer -> assertEquals(0, buffer.getNativeBuffer().refCnt()));
+    }
+}
@@ -0,0 +1,24 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.UpstreamProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryUtilTest {
+
+    @Test
+    void fullJitterBackoff_boundedByExponentialCap() {
+        var settings = new UpstreamProperties.Retry();
+        settings.setMinBackoff(Duration.ofMillis(100));
+        settings.setMaxBackoff(Duration.ofMillis(1000));
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(RetryUtil.fullJitterBackoff(0, settings).toMillis() <= 100);
+            assertTrue(RetryUtil.fullJitterBackoff(2, settings).toMillis() <= 400);
+            assertTrue(RetryUtil.fullJitterBackoff(10, settings).toMillis() <= 1000);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.reactivespring.util;
+
+import com.reactivespring.deadline.Deadline;
+import com.reactivespring.exception.DeadlineExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    SingleFlight<String, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+
+    @Test
+    void execute_concurrentCallsShareOneSubscription() {
+        //given
+        var subscriptions = new AtomicInteger();
+        var upstream = Sinks.<String>one();
+        var call = upstream.asMono().doOnSubscribe(subscription -> subscriptions.incrementAndGet());
+
+        //when
+        var first = singleFlight.execute("abc", () -> call).toFuture();
+        var second = singleFlight.execute("abc", () -> call).toFuture();
+        upstream.tryEmitValue("Batman Begins");
+
+        //then
+        assertEquals("Batman Begins", first.join());
+        assertEquals("Batman Begins", second.join());
+        assertEquals(1, subscriptions.get());
+        assertEquals(2, meterRegistry.get("upstream.singleflight.calls").counter().count());
+        assertEquals(1, meterRegistry.get("upstream.singleflight.executions").counter().count());
+        assertEquals(0.5, meterRegistry.get("upstream.singleflight.collapse.ratio").gauge().value());
+    }
+
+    @Test
+    void execute_keyReleasedAfterCompletion() {
+        //given
+        var subscriptions = new AtomicInteger();
+        var call = Mono.fromCallable(() -> "Batman Begins " + subscriptions.incrementAndGet());
+
+        //when
+        StepVerifier.create(singleFlight.execute("abc", () -> call))
+                .expectNext("Batman Begins 1")
+                .verifyComplete();
+
+        //then
+        StepVerifier.create(singleFlight.execute("abc", () -> call))
+                .expectNext("Batman Begins 2")
+                .verifyComplete();
+    }
+
+    @Test
+    void execute_cancelledOnlyWhenAllCallersCancel() {
+        //given
+        var cancelled = new AtomicBoolean();
+        var call = Sinks.<String>one().asMono().doOnCancel(() -> cancelled.set(true));
+
+        //when
+        var first = singleFlight.execute("abc", () -> call).subscribe();
+        var second = singleFlight.execute("abc", () -> call).subscribe();
+        first.dispose();
+
+        //then
+        assertFalse(cancelled.get());
+        second.dispose();
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    void execute_joinerOutlivesLeaderDeadline() {
+        //given
+        var upstream = Sinks.<String>one();
+        var sawDeadline = new AtomicBoolean();
+        var call = Mono.deferContextual(contextView -> {
+            sawDeadline.set(Deadline.from(contextView).isPresent());
+            return upstream.asMono();
+        });
+
+        //when
+        var leader = singleFlight.execute("abc", () -> call)
+                .contextWrite(Deadline.after(Duration.ofMillis(50))::storeIn);
+        var joiner = singleFlight.execute("abc", () -> call)
+                .contextWrite(Deadline.after(Duration.ofSeconds(5))::storeIn);
+
+        //then
+        StepVerifier.create(Mono.zip(leader.onErrorReturn(DeadlineExceededException.class, "timed out"), joiner))
+                .then(() -> Mono.delay(Duration.ofMillis(200)).subscribe(tick -> upstream.tryEmitValue("Batman Begins")))
+                .assertNext(results -> {
+                    assertEquals("timed out", results.getT1());
+                    assertEquals("Batman Begins", results.getT2());
+                })
+                .verifyComplete();
+        assertTrue(sawDeadline.get());
+    }
+
+    @Test
+    void execute_joinerRetriesWhenSharedCallRunsOutOfLeaderDeadline() {
+        //given
+        var calls = new AtomicInteger();
+        var call = Mono.defer(() -> calls.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofMillis(100)).then(Mono.<String>error(new DeadlineExceededException("Deadline exceeded calling test")))
+                : Mono.just("Batman Begins"));
+
+        //when
+        var leader = singleFlight.execute("abc", () -> call)
+                .contextWrite(Deadline.after(Duration.ofMillis(50))::storeIn);
+        var joiner = singleFlight.execute("abc", () -> call)
+                .contextWrite(Deadline.after(Duration.ofSeconds(5))::storeIn);
+
+        //then
+        StepVerifier.create(Mono.zip(leader.onErrorReturn(DeadlineExceededException.class, "timed out"), joiner))
+                .assertNext(results -> {
+                    assertEquals("timed out", results.getT1());
+                    assertEquals("Batman Begins", results.getT2());
+                })
+                .verifyComplete();
+        assertEquals(2, calls.get());
+    }
+}